@@ -0,0 +1,50 @@
+package com.example.emotilog;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Process-wide setup: starts restoring the saved log history as soon as the process starts
+ *
+ * Longer context: Android can start the process straight into any screen, e.g. EventListActivity
+ * or SummaryActivity restored after the process was killed, so LogManager's storage is opened here
+ * rather than by one Activity. The snapshot and journal are replayed on a background thread;
+ * queries made meanwhile see the history restored so far (screens reload through
+ * LogManager.runWhenRestored), and changes wait until the history is complete
+ *
+ * Assumptions: Registered as the application class in AndroidManifest.xml
+ *
+ * Limitations: A failure to open storage is only reported with a toast; the app then runs without
+ * saving logs
+ */
+public class EmotiLogApplication extends Application {
+    private static final String TAG = "EmotiLogApplication"; // Logcat tag for storage errors
+    private static final String STORAGE_DIR = "emotilog"; // Snapshot and journal directory inside getFilesDir()
+
+    /**
+     * Starts the background restore of LogManager's storage
+     */
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        LogManager.getInstance().openStorageInBackground(new File(getFilesDir(), STORAGE_DIR),
+                new LogManager.StorageCallback() {
+                    @Override
+                    public void onStorageOpened(IOException error) {
+                        if (error == null) {
+                            return;
+                        }
+                        Log.e(TAG, "Could not open log storage; logs will not be saved", error);
+                        mainHandler.post(() -> Toast.makeText(EmotiLogApplication.this,
+                                "Could not load saved logs", Toast.LENGTH_LONG).show());
+                    }
+                });
+    }
+}
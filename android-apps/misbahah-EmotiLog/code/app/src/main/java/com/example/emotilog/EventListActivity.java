@@ -3,6 +3,7 @@ package com.example.emotilog;
 import android.app.DatePickerDialog;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.AbsListView;
 import android.widget.Button;
 import android.widget.DatePicker;
 import android.widget.ListView;
@@ -18,19 +19,32 @@ import java.util.List;
 /**
  * Screen for choosing a date and viewing/editing/deleting entries from that day
  *
- * Longer context: Presents a date picker and a ListView bound via EventListAdapter; editing updates
- * the in-memory LogEntry, while deletion currently only affects the visible list
+ * Longer context: Presents a date picker and a ListView bound via EventListAdapter; edits and
+ * deletions go through LogManager so the stored entries and daily summaries stay in sync. Entries
+ * are fetched from LogManager one page at a time as the user scrolls, so opening a busy day costs
+ * the same as opening a quiet one. Pages are read on a background thread through LogQueries;
+ * picking another day supersedes a page still being read, so only the latest day is shown. Opened
+ * while LogManager is still restoring history, it shows the part restored so far and loads the day
+ * again once the restore is done
  *
  * Assumptions: Users expect a simple day filter with local time semantics
  *
  * Limitations:
- * - Delete path does not propagate to LogManager yet, so entries return after refresh
  * - No undo or confirmation beyond the dialog choice
+ * - Entries logged for the shown day from elsewhere while the list is open may not appear until
+ *   the day is picked again
  */
 public class EventListActivity extends AppCompatActivity {
     private ListView listView; // ListView displaying entries for the selected date
+    private static final int PAGE_SIZE = 50; // Entries fetched per page as the list scrolls
+
     private EventListAdapter adapter; // Adapter binding LogEntry objects to row views
     private Date selectedDate = new Date(); // Day currently being inspected; defaults to "today"
+    private List<LogEntry> logs; // Entries loaded so far for the selected day, shared with the adapter
+    private boolean allLoaded; // Whether the last page of the selected day has been loaded
+    private boolean loading; // Whether a page query is in flight
+    private boolean loadingNextPage; // Whether that query is for a next page of the shown day
+    private final LogQueries queries = new LogQueries(); // Runs the page queries off the main thread
 
     /**
      * Wires the layout, loads the initial day's logs, and prepares the date picker button
@@ -41,7 +55,30 @@ public class EventListActivity extends AppCompatActivity {
         setContentView(R.layout.activity_event_list);
 
         listView = findViewById(R.id.eventListView);
+        // start the first page before the listener goes in, since setting it reports a scroll
         loadLogsForDate(selectedDate);
+        LogManager.getInstance().runWhenRestored(() -> runOnUiThread(() -> {
+            if (!isDestroyed()) {
+                loadLogsForDate(selectedDate);
+            }
+        }));
+        listView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisible, int visibleCount, int totalCount) {
+                // fetch the next page while half a page is still left to scroll; there is nothing to
+                // page until a first page is shown
+                if (logs == null || allLoaded || loading) {
+                    return;
+                }
+                if (firstVisible + visibleCount >= totalCount - PAGE_SIZE / 2) {
+                    loadNextPage();
+                }
+            }
+        });
 
         Button btnPickDate = findViewById(R.id.btnPickDate);
         btnPickDate.setOnClickListener(new View.OnClickListener() {
@@ -69,12 +106,46 @@ public class EventListActivity extends AppCompatActivity {
     }
 
     /**
-     * Refreshes the ListView contents to match the selected day.
+     * Drops a page query still running so its result is not delivered to a destroyed screen
+     */
+    @Override
+    protected void onDestroy() {
+        queries.cancel();
+        super.onDestroy();
+    }
+
+    /**
+     * Refreshes the ListView contents to match the selected day, starting with its first page.
+     * The list keeps showing the previous day until the page arrives, with paging paused.
      *
      * @param date Day whose logs should be displayed.
      */
-    private void loadLogsForDate(Date date) {
-        final List<LogEntry> logs = LogManager.getInstance().getLogsByDate(date);
+    private void loadLogsForDate(final Date date) {
+        loading = true;
+        loadingNextPage = false;
+        queries.submit(manager -> manager.getLogsByDate(date, 0, PAGE_SIZE), this::showFirstPage, this::showLoadError);
+    }
+
+    /**
+     * Leaves the loading state after a page query failed, so picking a day or scrolling retries it
+     *
+     * @param error Exception the query threw, already logged by LogQueries
+     */
+    private void showLoadError(RuntimeException error) {
+        loading = false;
+        loadingNextPage = false;
+        Toast.makeText(this, "Could not load entries", Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Replaces the list with the first page of a newly selected day
+     *
+     * @param page Entries returned by the first page query
+     */
+    private void showFirstPage(List<LogEntry> page) {
+        logs = page;
+        loading = false;
+        allLoaded = logs.size() < PAGE_SIZE;
         adapter = new EventListAdapter(this, logs);
         listView.setAdapter(adapter);
 
@@ -87,6 +158,13 @@ public class EventListActivity extends AppCompatActivity {
                     .setTitle("Edit or Delete?")
                     .setPositiveButton("Edit", (d, which) -> showEditDialog(entry))
                     .setNegativeButton("Delete", (d, which) -> {
+                        LogManager.getInstance().removeLog(entry);
+                        if (loadingNextPage) {
+                            // a page read before this delete would start one entry late; read it again
+                            queries.cancel();
+                            loading = false;
+                            loadingNextPage = false;
+                        }
                         logs.remove(entry);
                         adapter.notifyDataSetChanged();
                     })
@@ -95,17 +173,37 @@ public class EventListActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Appends the next page of the selected day's entries to the list
+     * Deletions made here shrink the day in LogManager too, so the loaded count is the next offset
+     */
+    private void loadNextPage() {
+        final Date date = selectedDate;
+        final int offset = logs.size();
+        loading = true;
+        loadingNextPage = true;
+        queries.submit(manager -> manager.getLogsByDate(date, offset, PAGE_SIZE), page -> {
+            loading = false;
+            loadingNextPage = false;
+            allLoaded = page.size() < PAGE_SIZE;
+            if (!page.isEmpty()) {
+                logs.addAll(page);
+                adapter.notifyDataSetChanged();
+            }
+        }, this::showLoadError);
+    }
+
     /**
      * Displays an emoji picker dialog for editing a log entry
      *
      * @param entry Entry being modified
      */
     private void showEditDialog(final LogEntry entry) {
-        final String[] emojis = {"😊","😢","😡","🤩","😴","😱","😐","😍","😭"};
+        final String[] emojis = LogManager.EMOJIS.toArray(new String[0]);
         new AlertDialog.Builder(this)
                 .setTitle("Pick new emoji")
                 .setItems(emojis, (d, which) -> {
-                    entry.setEmoji(emojis[which]);
+                    LogManager.getInstance().updateEmoji(entry, emojis[which]);
                     adapter.notifyDataSetChanged();
                     Toast.makeText(this, "Updated entry", Toast.LENGTH_SHORT).show();
                 })
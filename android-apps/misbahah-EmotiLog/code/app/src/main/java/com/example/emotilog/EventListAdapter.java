@@ -7,7 +7,7 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 import android.widget.ArrayAdapter;
 
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Locale;
 
@@ -20,11 +20,16 @@ import java.util.Locale;
  *
  * Assumptions: Caller passes a list that reflects the desired day filter
  *
- * Limitations: No ViewHolder pattern; acceptable for the short prototype lists
+ * Limitations:
+ * - No ViewHolder pattern; acceptable for the short prototype lists
+ * - Rows already bound keep the locale and time zone in effect when their adapter was created
  */
 public class EventListAdapter extends ArrayAdapter<LogEntry> {
+    private static final String PATTERN = "yyyy-MM-dd HH:mm"; // Row timestamp format
+    private static TimestampFormatter shared; // Formatter shared by adapters while the locale and zone stay the same; guarded by the class
+
     private final LayoutInflater inflater; // Inflates row layouts for the ListView
-    private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault()); // Formats timestamps as "yyyy-MM-dd HH:mm" using the device locale
+    private final TimestampFormatter formatter; // Formats timestamps in the locale and zone in effect at creation; caches each minute
 
     /**
      * Creates the adapter with the day's entries.
@@ -32,6 +37,19 @@ public class EventListAdapter extends ArrayAdapter<LogEntry> {
     public EventListAdapter(Context context, List<LogEntry> entries) {
         super(context, 0, entries);
         inflater = LayoutInflater.from(context);
+        formatter = formatterFor(Locale.getDefault(), ZoneId.systemDefault());
+    }
+
+    /**
+     * Returns the shared formatter, replacing it first if the locale or time zone has changed since
+     * it was created, so a new list picks up the device settings without losing the minute cache
+     * otherwise
+     */
+    private static synchronized TimestampFormatter formatterFor(Locale locale, ZoneId zone) {
+        if (shared == null || !shared.isFor(PATTERN, locale, zone)) {
+            shared = new TimestampFormatter(PATTERN, locale, zone);
+        }
+        return shared;
     }
 
     /**
@@ -53,7 +71,7 @@ public class EventListAdapter extends ArrayAdapter<LogEntry> {
         TextView timeView = convertView.findViewById(R.id.textTime);
 
         emojiView.setText(entry.getEmoji());
-        timeView.setText(sdf.format(entry.getTimestamp()));
+        timeView.setText(formatter.format(entry.getTimestamp().getTime()));
 
         return convertView;
     }
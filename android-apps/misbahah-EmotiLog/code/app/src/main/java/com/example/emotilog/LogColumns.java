@@ -0,0 +1,177 @@
+package com.example.emotilog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar (struct-of-arrays) storage for every stored log: one primitive column per field
+ *
+ * Longer context: Instead of one LogEntry object per log (a Date, a String reference, and object
+ * headers; roughly 80 bytes each), a log is one row across three columns: long id, long epoch
+ * millis, and a byte emoji ordinal. Columns grow in fixed-size chunks, so appending never copies
+ * the existing history. Emojis are dictionary-encoded; the nine emojis offered by MainActivity get
+ * the first ordinals, and any other emoji found in older data is appended to the dictionary.
+ * LogManager builds LogEntry views from rows only when the UI asks for them
+ *
+ * Assumptions: Rows are appended in ascending id order (LogManager hands out increasing ids), so a
+ * row is found by binary search on the id column; calls come from LogManager only, which serializes
+ * writes with its lock. Readers may run concurrently with a writer, in which case they can see a
+ * stale chunk table (an index out of bounds) or a half-made change; LogManager validates such reads
+ * and repeats them under its read lock
+ *
+ * Limitations:
+ * - A deleted row stays in the columns as a tombstone (about 17 bytes) until the process restarts
+ * - At most MAX_EMOJIS distinct emojis can be stored
+ */
+class LogColumns {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS; // rows per chunk; columns grow one chunk at a time
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    static final int MAX_EMOJIS = Byte.MAX_VALUE + 1; // ordinals 0..127 fit in a byte
+    private static final byte DELETED = -1; // emoji ordinal marking a deleted row
+
+    private long[][] ids = new long[0][]; // id column, ascending
+    private long[][] millis = new long[0][]; // timestamp column, epoch millis
+    private byte[][] emojis = new byte[0][]; // emoji ordinal column, DELETED for tombstones
+    private int rows; // rows appended, including deleted ones
+    private int liveRows; // rows not deleted
+
+    private volatile String[] emojiNames = new String[0]; // ordinal -> emoji; replaced, never changed, so readers need no lock
+    private final Map<String, Integer> emojiOrdinals = new HashMap<>(); // emoji -> ordinal; writers only
+
+    /**
+     * @param knownEmojis Emojis that get the first ordinals, in order
+     */
+    LogColumns(List<String> knownEmojis) {
+        for (String emoji : knownEmojis) {
+            ordinal(emoji);
+        }
+    }
+
+    /**
+     * Returns the ordinal of an emoji, adding it to the dictionary if it is new
+     *
+     * @throws IllegalArgumentException If the dictionary already holds MAX_EMOJIS emojis
+     */
+    int ordinal(String emoji) {
+        Integer ordinal = emojiOrdinals.get(emoji);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        String[] names = emojiNames;
+        if (names.length == MAX_EMOJIS) {
+            throw new IllegalArgumentException("Too many distinct emojis; cannot store " + emoji);
+        }
+        names = Arrays.copyOf(names, names.length + 1);
+        names[names.length - 1] = emoji;
+        emojiOrdinals.put(emoji, names.length - 1);
+        emojiNames = names;
+        return names.length - 1;
+    }
+
+    String emoji(int ordinal) {
+        return emojiNames[ordinal];
+    }
+
+    /**
+     * Number of emojis in the dictionary; every ordinal is below this
+     */
+    int emojiCount() {
+        return emojiNames.length;
+    }
+
+    /**
+     * Appends a row
+     *
+     * @return Index of the new row
+     * @throws IllegalArgumentException If id is not greater than the id of the last row
+     */
+    int append(long id, long timestampMillis, int emojiOrdinal) {
+        if (rows > 0 && id <= id(rows - 1)) {
+            throw new IllegalArgumentException("Ids must be ascending: " + id + " after " + id(rows - 1));
+        }
+        int chunk = rows >>> CHUNK_BITS;
+        if (chunk == ids.length) {
+            ids = Arrays.copyOf(ids, chunk + 1);
+            millis = Arrays.copyOf(millis, chunk + 1);
+            emojis = Arrays.copyOf(emojis, chunk + 1);
+            ids[chunk] = new long[CHUNK_SIZE];
+            millis[chunk] = new long[CHUNK_SIZE];
+            emojis[chunk] = new byte[CHUNK_SIZE];
+        }
+        int offset = rows & CHUNK_MASK;
+        ids[chunk][offset] = id;
+        millis[chunk][offset] = timestampMillis;
+        emojis[chunk][offset] = (byte) emojiOrdinal;
+        liveRows++;
+        return rows++;
+    }
+
+    /**
+     * Finds the row holding an id by binary search
+     *
+     * @return Row index, or -1 if no live row has that id
+     */
+    int find(long id) {
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = id(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return isDeleted(mid) ? -1 : mid;
+            }
+        }
+        return -1;
+    }
+
+    long id(int row) {
+        return ids[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    long millis(int row) {
+        return millis[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    int emojiOrdinal(int row) {
+        return emojis[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    void setEmojiOrdinal(int row, int emojiOrdinal) {
+        emojis[row >>> CHUNK_BITS][row & CHUNK_MASK] = (byte) emojiOrdinal;
+    }
+
+    boolean isDeleted(int row) {
+        return emojiOrdinal(row) == DELETED;
+    }
+
+    /**
+     * Marks a row as deleted; its index stays valid but it is skipped by find and counted out of liveRows
+     */
+    void delete(int row) {
+        if (!isDeleted(row)) {
+            setEmojiOrdinal(row, DELETED);
+            liveRows--;
+        }
+    }
+
+    /**
+     * Number of row indexes in use, including deleted rows; valid rows are 0 to rows() - 1
+     */
+    int rows() {
+        return rows;
+    }
+
+    /**
+     * Number of rows that are not deleted
+     */
+    int liveRows() {
+        return liveRows;
+    }
+}
@@ -3,28 +3,40 @@ package com.example.emotilog;
 import java.util.Date;
 
 /**
- * Immutable-ish record for a single emoji log with timestamp
+ * Immutable-ish view of a single emoji log with timestamp
  *
- * Longer context: stores the emoji a user selects alongside the capture time; does not persist
- * anything to disk and is consumed by LogManager, EventListAdapter, and SummaryAdapter
+ * Longer context: LogManager stores logs as primitive columns and builds these views on request;
+ * a view carries the emoji a user selected alongside the capture time and the LogManager-assigned
+ * id that identifies the log when it is edited or deleted. It does not persist anything itself and
+ * is consumed by EventListActivity and EventListAdapter
  *
  * Assumptions: Timestamps are generated at log time and remain unchanged even if the emoji is edited
  *
  * Limitations: Relies on java.util.Date, so it is not fully time-zone aware or immutable
  */
 public class LogEntry {
+    private final long id; // Unique id assigned by LogManager; stable across app restarts
     private String emoji; // Emoji string representing the logged mood
     private Date timestamp; // Timestamp captured when the log was created
 
-    public LogEntry(String emoji, Date timestamp) {
+    public LogEntry(long id, String emoji, Date timestamp) {
+        this.id = id;
         this.emoji = emoji;
         this.timestamp = timestamp;
     }
 
+    public long getId() {
+        return id;
+    }
+
     public String getEmoji() {
         return emoji;
     }
 
+    /**
+     * Sets the emoji directly; stored entries should be edited through LogManager.updateEmoji so
+     * the daily summaries follow the change
+     */
     public void setEmoji(String emoji) {
         this.emoji = emoji;
     }
@@ -0,0 +1,349 @@
+package com.example.emotilog;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of log operations (add, edit, delete) so history survives process death
+ *
+ * Longer context: LogStorage appends one record per operation to the current journal segment.
+ * Appends only copy the record into an in-memory buffer; a background thread writes the buffer to
+ * the file and fsyncs it COMMIT_INTERVAL_MS after the first record starts waiting (or sooner once
+ * BATCH_BYTES are waiting), so a burst of emoji taps costs one disk sync instead of one per tap, and
+ * an idle journal does not wake up at all. On open, the existing file is replayed through a Replay
+ * callback
+ *
+ * File format: a 4-byte magic and version header, then records of
+ * [int payload length][payload][int CRC32 of payload], where the payload is
+ * [byte op][long id] followed by [long timestamp millis][UTF emoji] for adds and [UTF emoji] for edits
+ *
+ * Assumptions: One journal instance per file, owned by LogStorage
+ *
+ * Limitations:
+ * - Operations from the last commit interval can be lost if the process dies before the background
+ *   sync; call flush() where that matters (e.g. when the app goes to the background)
+ * - A record cut short by a crash (torn write) or failing its checksum ends the replay; it and
+ *   anything after it are discarded
+ */
+public class LogJournal implements Closeable {
+    private static final int MAGIC = 0x454D4A31; // "EMJ1": identifies the file and its format version
+    private static final int HEADER_BYTES = 4; // size of the magic header
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024; // longer "records" can only come from corruption
+    static final long COMMIT_INTERVAL_MS = 200; // longest time an appended record waits to be synced
+    static final int BATCH_BYTES = 16 * 1024; // buffered bytes that trigger a sync without waiting
+
+    static final byte OP_ADD = 1; // record types, stored as the first payload byte
+    static final byte OP_EDIT = 2;
+    static final byte OP_DELETE = 3;
+
+    /**
+     * Receives the operations stored in a journal while it is being replayed
+     */
+    public interface Replay {
+        /** An entry with this id, time, and emoji was logged */
+        void onAdd(long id, long timestampMillis, String emoji);
+
+        /** The entry with this id got a new emoji */
+        void onEdit(long id, String emoji);
+
+        /** The entry with this id was deleted */
+        void onDelete(long id);
+    }
+
+    private final FileChannel channel; // file opened for appending
+    private final Object commitLock = new Object(); // one commit at a time; appends only take "this"
+    private final ScheduledExecutorService flusher; // background thread doing the group commits
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(64); // reused to encode one payload
+    private final DataOutputStream record = new DataOutputStream(recordBytes); // writes into recordBytes
+    private final CRC32 crc = new CRC32(); // reused to checksum each payload
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(BATCH_BYTES); // encoded records not yet written
+    private IOException failure; // last background write error, reported by the next flush()
+    private boolean commitScheduled; // a background commit is queued for the records in pending
+    private boolean closed;
+
+    private LogJournal(FileChannel channel) {
+        this.channel = channel;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LogJournal-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens (or creates) a journal file, replays its records, and readies it for appending
+     * A torn or corrupt tail is truncated away so new records follow the last good one
+     *
+     * @param file Journal file, typically in the app's files directory
+     * @param replay Receives every stored operation in order before this method returns
+     * @return Journal ready for appends
+     * @throws IOException If the file cannot be read or opened for writing
+     */
+    public static LogJournal open(File file, Replay replay) throws IOException {
+        long validLength = file.exists() ? replay(file, replay) : 0;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() != validLength) {
+                raf.setLength(validLength);
+            }
+            if (validLength == 0) {
+                raf.writeInt(MAGIC);
+            }
+            raf.getFD().sync();
+        }
+        FileChannel channel = new FileOutputStream(file, true).getChannel();
+        return new LogJournal(channel);
+    }
+
+    /**
+     * Reads records until the end of the file or the first torn/corrupt one
+     *
+     * @return Length of the valid prefix of the file; 0 if even the header is missing or wrong
+     */
+    static long replay(File file, Replay replay) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            long length = file.length();
+            if (length < HEADER_BYTES || in.readInt() != MAGIC) {
+                return 0;
+            }
+            long offset = HEADER_BYTES;
+            CRC32 check = new CRC32();
+            byte[] payload = new byte[256];
+            while (true) {
+                int size;
+                try {
+                    size = in.readInt();
+                } catch (EOFException e) {
+                    return offset;
+                }
+                if (size <= 0 || size > MAX_PAYLOAD_BYTES || offset + 8 + size > length) {
+                    return offset;
+                }
+                if (payload.length < size) {
+                    payload = new byte[size];
+                }
+                in.readFully(payload, 0, size);
+                check.reset();
+                check.update(payload, 0, size);
+                if (in.readInt() != (int) check.getValue()) {
+                    return offset;
+                }
+                if (!apply(payload, size, replay)) {
+                    return offset;
+                }
+                offset += 8 + size;
+            }
+        }
+    }
+
+    /**
+     * Decodes one payload and hands it to the replay callback
+     *
+     * @return false if the payload has an unknown type or is malformed
+     */
+    private static boolean apply(byte[] payload, int size, Replay replay) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 0, size));
+        try {
+            byte op = in.readByte();
+            long id = in.readLong();
+            if (op == OP_ADD) {
+                long timestamp = in.readLong();
+                replay.onAdd(id, timestamp, in.readUTF());
+            } else if (op == OP_EDIT) {
+                replay.onEdit(id, in.readUTF());
+            } else if (op == OP_DELETE) {
+                replay.onDelete(id);
+            } else {
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records that an entry was logged
+     */
+    public synchronized void appendAdd(long id, long timestampMillis, String emoji) {
+        try {
+            beginRecord(OP_ADD, id);
+            record.writeLong(timestampMillis);
+            record.writeUTF(emoji);
+            endRecord();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // writes to memory cannot fail
+        }
+    }
+
+    /**
+     * Records that an entry's emoji was changed
+     */
+    public synchronized void appendEdit(long id, String emoji) {
+        try {
+            beginRecord(OP_EDIT, id);
+            record.writeUTF(emoji);
+            endRecord();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Records that an entry was deleted
+     */
+    public synchronized void appendDelete(long id) {
+        try {
+            beginRecord(OP_DELETE, id);
+            endRecord();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void beginRecord(byte op, long id) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        recordBytes.reset();
+        record.writeByte(op);
+        record.writeLong(id);
+    }
+
+    private void endRecord() throws IOException {
+        byte[] payload = recordBytes.toByteArray();
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+        DataOutputStream out = new DataOutputStream(pending);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+        if (pending.size() >= BATCH_BYTES) {
+            flusher.execute(this::commitQuietly);
+        } else {
+            scheduleCommit();
+        }
+    }
+
+    /**
+     * Queues a background commit COMMIT_INTERVAL_MS from now unless one is already queued
+     * Called with the monitor held
+     */
+    private void scheduleCommit() {
+        if (!commitScheduled && !closed) {
+            commitScheduled = true;
+            flusher.schedule(this::commitQuietly, COMMIT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes and fsyncs everything appended so far before returning
+     *
+     * @throws IOException If this or an earlier background commit failed
+     */
+    public void flush() throws IOException {
+        commit();
+    }
+
+    /**
+     * Starts a commit of everything appended so far on the background thread and returns at once,
+     * for callers that must not block on disk I/O (the main thread); a failure is reported by the
+     * next flush(). A no-op once closed
+     */
+    public synchronized void commitInBackground() {
+        if (!closed) {
+            flusher.execute(this::commitQuietly);
+        }
+    }
+
+    /**
+     * Group commit: takes the whole pending buffer, writes it in one go, and syncs the file once
+     * Runs on the background thread, or on the caller's thread for flush()
+     */
+    private void commit() throws IOException {
+        synchronized (commitLock) {
+            ByteArrayOutputStream batch;
+            IOException earlier;
+            synchronized (this) {
+                earlier = failure;
+                failure = null;
+                batch = pending;
+                pending = new ByteArrayOutputStream(BATCH_BYTES);
+                commitScheduled = false; // records appended from now on need a new commit
+            }
+            if (batch.size() > 0) {
+                long start = channel.size();
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                } catch (IOException e) {
+                    try {
+                        channel.truncate(start); // drop a half-written batch so the retry starts clean
+                    } catch (IOException ignored) {
+                        // replay stops at the torn record anyway
+                    }
+                    synchronized (this) {
+                        // put the batch back in front of newer records so the next commit retries it
+                        ByteArrayOutputStream retry = new ByteArrayOutputStream(batch.size() + pending.size());
+                        batch.writeTo(retry);
+                        pending.writeTo(retry);
+                        pending = retry;
+                        scheduleCommit();
+                    }
+                    throw e;
+                }
+            }
+            if (earlier != null) {
+                throw earlier;
+            }
+        }
+    }
+
+    private void commitQuietly() {
+        try {
+            commit();
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Flushes pending records, stops the background thread, and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flusher.shutdown();
+        try {
+            commit();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -1,81 +1,1037 @@
 package com.example.emotilog;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
 
 /**
- * In-memory store for all LogEntry objects; provides query helpers and daily summaries
+ * In-memory store for all logs; provides query helpers and daily summaries
  *
- * Longer context: Maintains a singleton list that backs the home screen, the event list, and the
- * summary view without any on-disk persistence. The UI layers ask this class for data, but it does
- * not handle rendering or Android lifecycle concerns
+ * Longer context: Maintains a singleton store that backs the home screen, the event list, and the
+ * summary view. Logs live in LogColumns as primitive columns (id, epoch millis, emoji ordinal)
+ * rather than as LogEntry objects; LogEntry views are only built when the UI asks for a day's
+ * entries, one page at a time if they ask for it. Rows are bucketed by local calendar day (epoch
+ * day in the device time zone), so a date lookup only touches that day's rows instead of the whole
+ * history. Each day also keeps running counts per emoji ordinal that are updated on add, edit, and
+ * delete, so a daily summary is read off directly instead of being recounted. Summaries over a date
+ * range (week, month, year) come from per-emoji prefix sums over the day buckets, kept in Fenwick
+ * trees: two binary searches plus two O(log days) prefix reads per emoji, however many days the
+ * range spans, and each write updates them in O(log days) instead of invalidating them.
+ * forEachLogByDate and the count methods read the columns without allocating. Once storage is
+ * opened, every change is also appended to its journal and the history is restored on the next
+ * start; when the journal grows long, the whole state is compacted into a snapshot so startup stays
+ * fast. With setMetricsEnabled, every public operation also records its latency and the work it did
+ * into LogMetrics. The UI layers ask this class for data, but it does not handle rendering or
+ * Android lifecycle concerns
  *
- * Assumptions: One process-wide singleton is sufficient for the assignment flows
+ * Threading: Safe to use from any thread (UI, widgets, notifications, background workers). Writers
+ * take a StampedLock write lock for the in-memory change plus the journal append, which only copies
+ * bytes into a buffer. Queries first read optimistically without locking and keep the result if no
+ * write happened meanwhile; only a query that raced a writer is repeated under the read lock, so
+ * queries never wait for disk I/O. A write that fills the journal segment queues a compaction on a
+ * background thread and returns; that thread opens the next segment and writes files with no lock
+ * held, and only holds the read lock while it switches segments and encodes the snapshot in memory
+ * (queries continue, writers wait)
+ *
+ * Assumptions: An entry's timestamp does not change after it is logged, and emoji edits go through
+ * updateEmoji rather than LogEntry.setEmoji so the counts and the journal stay correct
  *
  * Limitations:
- * - No persistence layer, so logs vanish when the process is killed
- * - Same-day detection relies on deprecated java.util.Date APIs and ignores time zones
- * - Lacks a dedicated remove(LogEntry) helper, so deletions in EventListActivity are not yet permanent
+ * - Without openStorage, logs vanish when the process is killed
+ * - While openStorageInBackground restores history, queries see the part restored so far and
+ *   changes wait until it is done; screens reload through runWhenRestored
+ * - Day boundaries use the time zone in effect when the store was created; a zone change while the
+ *   app is running does not re-bucket earlier entries
+ * - The range prefix sums are rebuilt, in one pass over the days that have logs, on the first range
+ *   query after a log lands on a day before the last one they cover or a new emoji is logged
+ * - LogEntry views are copies; a change made through LogManager is not seen by views built earlier
+ *   except the one passed to updateEmoji
  */
 public class LogManager {
-    private static LogManager instance; // reference used so every Activity shares the same in-memory state
-    private final List<LogEntry> logs; // list of all logs
+    /** The emojis offered on the home screen; they get the first emoji ordinals, in this order */
+    public static final List<String> EMOJIS = Collections.unmodifiableList(
+            Arrays.asList("😊", "😢", "😡", "🤩", "😴", "😱", "😐", "😍", "😭"));
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000; // length of a calendar day ignoring DST, used for epoch-day math
+
+    // one background thread for automatic compactions, so a write never waits for their file I/O
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "LogManager-compact");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final StampedLock lock = new StampedLock(); // write lock for changes; optimistic or read lock for queries
+    private final Object compactLock = new Object(); // one compaction at a time
+    private final AtomicBoolean compactionQueued = new AtomicBoolean(); // whether COMPACTOR already has one to run
+    private final LogColumns columns; // every stored log, one row each
+    private final ConcurrentSkipListMap<Long, DayBucket> logsByDay; // row indexes of all live logs, bucketed by local epoch day
+    private final TimeZone timeZone; // zone that decides where one day ends and the next begins
+    private volatile PrefixSums prefixSums; // range aggregates kept current by writers; null until the next rebuild
+    private long nextId; // id handed to the next new entry
+    private volatile LogStorage storage; // where changes are recorded; null until openStorage succeeds
+    private volatile LogMetrics metrics; // where operations are measured; null while metrics are disabled
+    private final Object openLock = new Object(); // one openStorage at a time
+    private volatile CountDownLatch restoring; // released when openStorageInBackground is done; null when none runs
+    private final List<Runnable> whenRestored = new ArrayList<>(); // actions for runWhenRestored; its monitor guards changes to restoring
+
+    /**
+     * Creates an empty store; package-private so unit tests can start fresh, the app uses getInstance()
+     */
+    LogManager() {
+        columns = new LogColumns(EMOJIS);
+        logsByDay = new ConcurrentSkipListMap<>();
+        timeZone = TimeZone.getDefault();
+    }
+
+    /**
+     * Holds the singleton; the JVM initializes it once, on first use, and publishes it safely
+     */
+    private static class Holder {
+        static final LogManager INSTANCE = new LogManager(); // reference used so every Activity shares the same in-memory state
+    }
+
+    /**
+     * Told when openStorageInBackground has finished, on its background thread
+     */
+    public interface StorageCallback {
+        /**
+         * @param error Why the storage could not be opened (the store then stays in-memory only), or
+         *              null once the history is restored
+         */
+        void onStorageOpened(IOException error);
+    }
+
+    /**
+     * Receives stored logs one at a time, straight from the columns and without LogEntry objects
+     */
+    public interface LogVisitor {
+        /**
+         * @param id Entry id
+         * @param timestampMillis Time the entry was logged, in epoch millis
+         * @param emojiOrdinal Emoji ordinal; see getEmoji
+         */
+        void visit(long id, long timestampMillis, int emojiOrdinal);
+    }
+
+    /**
+     * One local calendar day: row indexes of its logs in logging order plus running counts per
+     * emoji ordinal
+     */
+    private static class DayBucket {
+        int[] rows = new int[8]; // row indexes of this day's logs; only the first size are used
+        int size; // number of logs on this day
+        int[] counts = new int[EMOJIS.size()]; // emoji ordinal -> number of logs with that emoji
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        void remove(int row) {
+            for (int i = 0; i < size; i++) {
+                if (rows[i] == row) {
+                    System.arraycopy(rows, i + 1, rows, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        void count(int ordinal, int delta) {
+            if (ordinal >= counts.length) {
+                counts = Arrays.copyOf(counts, ordinal + 1);
+            }
+            counts[ordinal] += delta;
+        }
+    }
+
+    /**
+     * Per-emoji prefix sums over the days that have logs, as Fenwick trees (binary indexed trees)
+     * A write changes one day's count in O(log days); a new day after the last one is appended in
+     * O(emojis * log days). Changed under the write lock, read optimistically or under the read lock
+     */
+    private static class PrefixSums {
+        long[] days; // epoch days covered, ascending; a day whose logs were all deleted stays with zero counts
+        int size; // number of days covered
+        int[] tree; // [node * emojis + ordinal] for Fenwick nodes 1..size; node n sums days (n - lowbit(n), n]
+        final int emojis; // emoji count when the sums were built; a newer emoji needs a rebuild
+
+        PrefixSums(long[] days, int size, int[] tree, int emojis) {
+            this.days = days;
+            this.size = size;
+            this.tree = tree;
+            this.emojis = emojis;
+        }
+
+        /**
+         * Index of the first day that is not before the given day (binary search)
+         */
+        int firstDayAtOrAfter(long day) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (days[mid] < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Writes the counts per emoji from startDay through endDay into counts
+         *
+         * @return Total number of logs in the range
+         */
+        int sum(long startDay, long endDay, int[] counts) {
+            Arrays.fill(counts, 0);
+            addPrefix(firstDayAtOrAfter(endDay + 1), counts, 1);
+            addPrefix(firstDayAtOrAfter(startDay), counts, -1);
+            int total = 0;
+            for (int ordinal = 0; ordinal < emojis; ordinal++) {
+                total += counts[ordinal];
+            }
+            return total;
+        }
+
+        /**
+         * Adds sign times the counts of the first dayCount days to counts
+         */
+        private void addPrefix(int dayCount, int[] counts, int sign) {
+            for (int node = dayCount; node > 0; node -= node & -node) {
+                int base = node * emojis;
+                for (int ordinal = 0; ordinal < emojis; ordinal++) {
+                    counts[ordinal] += sign * tree[base + ordinal];
+                }
+            }
+        }
 
-    private LogManager() {
-        logs = new ArrayList<>();
+        /**
+         * Adds delta to one emoji's count on the day at the given index
+         */
+        void add(int index, int ordinal, int delta) {
+            for (int node = index + 1; node <= size; node += node & -node) {
+                tree[node * emojis + ordinal] += delta;
+            }
+        }
+
+        /**
+         * Covers a day after every day covered so far, starting from that day's counts
+         */
+        void append(long day, int[] dayCounts) {
+            if (size + 1 >= days.length) {
+                days = Arrays.copyOf(days, days.length * 2);
+                tree = Arrays.copyOf(tree, days.length * emojis);
+            }
+            days[size] = day;
+            int node = size + 1;
+            int base = node * emojis;
+            for (int ordinal = 0; ordinal < emojis; ordinal++) {
+                tree[base + ordinal] = ordinal < dayCounts.length ? dayCounts[ordinal] : 0;
+            }
+            // the new node also sums the nodes that cover the days between it and its lower bound
+            int low = node - (node & -node);
+            for (int child = node - 1; child > low; child -= child & -child) {
+                for (int ordinal = 0; ordinal < emojis; ordinal++) {
+                    tree[base + ordinal] += tree[child * emojis + ordinal];
+                }
+            }
+            size = node;
+        }
     }
 
     /**
-     * Returns the singleton instance, creating it lazily on first access
+     * Returns the singleton instance, created on first access
      */
     public static LogManager getInstance() {
-        if (instance == null) {
-            instance = new LogManager();
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Restores history from a storage directory (snapshot plus journal) and records every later
+     * change there; does nothing if storage is already open
+     * Blocks the caller for the whole restore; the app uses openStorageInBackground instead. Each
+     * restored change takes the write lock on its own, so queries on other threads run meanwhile and
+     * see the history restored so far. Writes from other threads must not run until it returns
+     *
+     * @param directory Storage directory, typically new File(getFilesDir(), "emotilog")
+     * @throws IOException If the storage cannot be read or opened; the store then stays in-memory only
+     */
+    public void openStorage(File directory) throws IOException {
+        synchronized (openLock) {
+            if (storage != null) {
+                return;
+            }
+            LogStorage opened = LogStorage.open(directory, new LogJournal.Replay() {
+                @Override
+                public void onAdd(long id, long timestampMillis, String emoji) {
+                    long stamp = lock.writeLock();
+                    try {
+                        // ids below nextId are already stored or were deleted
+                        if (id >= nextId) {
+                            insert(id, timestampMillis, columns.ordinal(emoji));
+                        }
+                    } finally {
+                        lock.unlockWrite(stamp);
+                    }
+                }
+
+                @Override
+                public void onEdit(long id, String emoji) {
+                    long stamp = lock.writeLock();
+                    try {
+                        int row = columns.find(id);
+                        if (row >= 0) {
+                            changeEmoji(row, columns.ordinal(emoji));
+                        }
+                    } finally {
+                        lock.unlockWrite(stamp);
+                    }
+                }
+
+                @Override
+                public void onDelete(long id) {
+                    long stamp = lock.writeLock();
+                    try {
+                        int row = columns.find(id);
+                        if (row >= 0) {
+                            delete(row);
+                        }
+                    } finally {
+                        lock.unlockWrite(stamp);
+                    }
+                }
+            });
+            long stamp = lock.writeLock();
+            try {
+                nextId = Math.max(nextId, opened.getRestoredNextId());
+                storage = opened;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
         }
-        return instance;
     }
 
     /**
-     * Stores a new log entry in the in-memory list
+     * Restores history like openStorage, but on a background thread, and returns at once
+     * Queries called meanwhile do not wait: they answer from the history restored so far. Changes
+     * (add, edit, remove, flush, compact) wait until the restore is done, so new entries never reuse
+     * a restored id. Call once, before any screen can use the store (EmotiLogApplication.onCreate)
+     *
+     * @param directory Storage directory, typically new File(getFilesDir(), "emotilog")
+     * @param callback Told on the background thread once storage is open or has failed to open,
+     *                 before the actions passed to runWhenRestored
+     */
+    public void openStorageInBackground(final File directory, final StorageCallback callback) {
+        final CountDownLatch done = new CountDownLatch(1);
+        synchronized (whenRestored) {
+            restoring = done;
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                IOException error = null;
+                List<Runnable> actions;
+                try {
+                    openStorage(directory);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    synchronized (whenRestored) {
+                        restoring = null;
+                        actions = new ArrayList<>(whenRestored);
+                        whenRestored.clear();
+                    }
+                    done.countDown();
+                }
+                callback.onStorageOpened(error);
+                for (Runnable action : actions) {
+                    action.run();
+                }
+            }
+        }, "LogManager-restore").start();
+    }
+
+    /**
+     * Whether openStorageInBackground is still restoring, i.e. queries may be missing older history
+     */
+    public boolean isRestoring() {
+        return restoring != null;
+    }
+
+    /**
+     * Runs action on the restore thread once the running openStorageInBackground is done, so a
+     * screen that queried during the restore can load again; nothing to do when none is running
+     *
+     * @return true if the action will run, false if no restore is running (queries already see the
+     *         whole history) and the action was dropped
+     */
+    public boolean runWhenRestored(Runnable action) {
+        synchronized (whenRestored) {
+            if (restoring == null) {
+                return false;
+            }
+            whenRestored.add(action);
+            return true;
+        }
+    }
+
+    /**
+     * Starts or stops recording LogMetrics; off by default, when the only cost is one null check per
+     * call. Enabling starts from zero, and disabling discards what was recorded
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled != (metrics != null)) {
+            metrics = enabled ? new LogMetrics() : null;
+        }
+    }
+
+    public boolean isMetricsEnabled() {
+        return metrics != null;
+    }
+
+    /**
+     * Returns a copy of the metrics recorded since they were enabled; all zero while disabled
+     */
+    public LogMetrics.Snapshot getMetrics() {
+        LogMetrics metrics = this.metrics;
+        return (metrics != null ? metrics : new LogMetrics()).snapshot();
+    }
+
+    /**
+     * Rewrites the stored history as a compact snapshot and drops the journal it replaces
+     * Runs automatically on a background thread when the journal gets long; calling it directly
+     * blocks for the file I/O. A no-op without open storage
+     *
+     * @throws IOException If the snapshot could not be written; no history is lost in that case
+     */
+    public void compact() throws IOException {
+        awaitRestore();
+        synchronized (compactLock) {
+            LogStorage storage = this.storage;
+            if (storage == null) {
+                return;
+            }
+            LogMetrics metrics = this.metrics;
+            long started = metrics == null ? 0 : System.nanoTime();
+            storage.prepareCompaction();
+            LogStorage.Compaction compaction;
+            long stamp = lock.readLock();
+            try {
+                compaction = storage.startCompaction(nextId, columns);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            storage.finishCompaction(compaction);
+            if (metrics != null) {
+                metrics.record(LogMetrics.Operation.COMPACT, started);
+            }
+        }
+    }
+
+    /**
+     * Forces every change made so far to disk; a no-op without open storage
+     * Changes are otherwise synced in the background within a fraction of a second
+     */
+    public void flush() throws IOException {
+        awaitRestore();
+        LogStorage storage = this.storage;
+        if (storage != null) {
+            storage.flush();
+        }
+    }
+
+    /**
+     * Starts syncing every change made so far on the journal's background thread and returns at
+     * once, so the main thread can call it (MainActivity.onStop); a failure is reported by the next
+     * flush. A no-op without open storage, which includes a restore still running, since changes
+     * wait for it before they reach the journal
+     */
+    public void flushInBackground() {
+        LogStorage storage = this.storage;
+        if (storage != null) {
+            storage.flushInBackground();
+        }
+    }
+
+    /**
+     * Stores a new log entry in the in-memory store (and the journal, if open)
      */
     public void addLog(String emoji, Date timestamp) {
-        logs.add(new LogEntry(emoji, timestamp));
+        awaitRestore();
+        boolean compactNow = false;
+        LogMetrics metrics = this.metrics;
+        long started = metrics == null ? 0 : System.nanoTime();
+        long stamp = lock.writeLock();
+        try {
+            long id = nextId;
+            insert(id, timestamp.getTime(), columns.ordinal(emoji));
+            if (storage != null) {
+                storage.appendAdd(id, timestamp.getTime(), emoji);
+                compactNow = storage.shouldCompact();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+            if (metrics != null) {
+                metrics.record(LogMetrics.Operation.ADD_LOG, started);
+            }
+        }
+        compactIf(compactNow);
+    }
+
+    /**
+     * Changes the emoji of a stored entry and moves its count to the new emoji
+     * The given view is updated as well
+     *
+     * @param entry Entry previously returned by getLogsByDate
+     * @param emoji Replacement emoji
+     */
+    public void updateEmoji(LogEntry entry, String emoji) {
+        awaitRestore();
+        boolean compactNow = false;
+        LogMetrics metrics = this.metrics;
+        long started = metrics == null ? 0 : System.nanoTime();
+        long stamp = lock.writeLock();
+        try {
+            int row = columns.find(entry.getId());
+            if (row < 0) {
+                throw new IllegalArgumentException("Entry is not stored in LogManager");
+            }
+            changeEmoji(row, columns.ordinal(emoji));
+            if (storage != null) {
+                storage.appendEdit(entry.getId(), emoji);
+                compactNow = storage.shouldCompact();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+            if (metrics != null) {
+                metrics.record(LogMetrics.Operation.UPDATE_EMOJI, started);
+            }
+        }
+        entry.setEmoji(emoji);
+        compactIf(compactNow);
+    }
+
+    /**
+     * Deletes a stored entry; days left without entries are dropped from the index
+     *
+     * @param entry Entry previously returned by getLogsByDate
+     * @return true if the entry was stored and has been removed, false if it was not stored
+     */
+    public boolean removeLog(LogEntry entry) {
+        awaitRestore();
+        boolean compactNow = false;
+        LogMetrics metrics = this.metrics;
+        long started = metrics == null ? 0 : System.nanoTime();
+        long stamp = lock.writeLock();
+        try {
+            int row = columns.find(entry.getId());
+            if (row < 0) {
+                return false;
+            }
+            delete(row);
+            if (storage != null) {
+                storage.appendDelete(entry.getId());
+                compactNow = storage.shouldCompact();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+            if (metrics != null) {
+                metrics.record(LogMetrics.Operation.REMOVE_LOG, started);
+            }
+        }
+        compactIf(compactNow);
+        return true;
     }
 
     /**
      * Retrieves all logs whose timestamps fall on the same local calendar day as the given date
+     * Only that day's rows are read; the returned list holds new views the caller may modify
      */
     public List<LogEntry> getLogsByDate(Date date) {
-        List<LogEntry> result = new ArrayList<>();
-        for (LogEntry entry : logs) {
-            if (isSameDay(entry.getTimestamp(), date)) {
-                result.add(entry);
+        return getLogsByDate(date, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Retrieves one page of the logs on the given day, in logging order
+     * Only the requested rows get LogEntry views, so the cost depends on limit, not on the day's size
+     *
+     * @param offset Number of the day's logs to skip
+     * @param limit Largest number of logs to return
+     * @return New views the caller may modify; shorter than limit once the end of the day is reached
+     * @throws IllegalArgumentException If offset or limit is negative
+     */
+    public List<LogEntry> getLogsByDate(Date date, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Negative offset or limit: " + offset + ", " + limit);
+        }
+        LogMetrics metrics = this.metrics;
+        long started = metrics == null ? 0 : System.nanoTime();
+        long day = epochDay(date.getTime());
+        List<LogEntry> logs = null;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                List<LogEntry> read = readLogs(day, offset, limit, metrics);
+                if (lock.validate(stamp)) {
+                    logs = read;
+                }
+            } catch (RuntimeException raced) {
+                // a writer changed the arrays mid-read; read again under the lock
             }
         }
-        return result;
+        boolean held = logs != null;
+        if (!held) {
+            stamp = lock.readLock();
+            try {
+                logs = readLogs(day, offset, limit, metrics);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (metrics != null) {
+            metrics.optimisticRead(held);
+            metrics.scanned(LogMetrics.Operation.LOGS_BY_DATE, logs.size());
+            metrics.record(LogMetrics.Operation.LOGS_BY_DATE, started);
+        }
+        return logs;
+    }
+
+    /**
+     * Hands every log on the given day to the visitor in logging order, without allocating
+     * The visitor runs under the read lock, so it must be quick and must not add, edit, or remove
+     * logs (that would deadlock)
+     */
+    public void forEachLogByDate(Date date, LogVisitor visitor) {
+        LogMetrics metrics = this.metrics;
+        long started = metrics == null ? 0 : System.nanoTime();
+        long day = epochDay(date.getTime());
+        int visited = 0;
+        long stamp = lock.readLock();
+        try {
+            DayBucket bucket = logsByDay.get(day);
+            if (bucket == null) {
+                return;
+            }
+            for (; visited < bucket.size; visited++) {
+                int row = bucket.rows[visited];
+                visitor.visit(columns.id(row), columns.millis(row), columns.emojiOrdinal(row));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+            if (metrics != null) {
+                metrics.scanned(LogMetrics.Operation.FOR_EACH_LOG_BY_DATE, visited);
+                metrics.record(LogMetrics.Operation.FOR_EACH_LOG_BY_DATE, started);
+            }
+        }
+    }
+
+    /**
+     * Writes the number of logs per emoji ordinal on the given day into counts, without allocating
+     *
+     * @param counts Receives counts[ordinal]; must have at least getEmojiCount() slots, extra slots
+     *               are set to 0
+     * @return Total number of logs that day
+     */
+    public int getCountsByDate(Date date, int[] counts) {
+        LogMetrics metrics = this.metrics;
+        long started = metrics == null ? 0 : System.nanoTime();
+        int total = countsByDate(epochDay(date.getTime()), counts, metrics);
+        if (metrics != null) {
+            metrics.record(LogMetrics.Operation.COUNTS_BY_DATE, started);
+        }
+        return total;
+    }
+
+    /**
+     * Writes the number of logs per emoji ordinal over a range of days into counts, without
+     * allocating once the prefix sums are current
+     *
+     * @param start First day of the range (any time on that local day)
+     * @param end Last day of the range, inclusive
+     * @param counts Receives counts[ordinal]; must have at least getEmojiCount() slots, extra slots
+     *               are set to 0
+     * @return Total number of logs in the range
+     * @throws IllegalArgumentException If end falls on an earlier day than start
+     */
+    public int getCountsByRange(Date start, Date end, int[] counts) {
+        LogMetrics metrics = this.metrics;
+        long started = metrics == null ? 0 : System.nanoTime();
+        int total = countsByRange(start, end, counts, metrics, LogMetrics.Operation.COUNTS_BY_RANGE);
+        if (metrics != null) {
+            metrics.record(LogMetrics.Operation.COUNTS_BY_RANGE, started);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the frequency table (emoji -> count) for all logs from start's day through end's day
+     * Empty map indicates no logs in the range
+     *
+     * @throws IllegalArgumentException If end falls on an earlier day than start
+     */
+    public Map<String, Integer> getSummaryRange(Date start, Date end) {
+        LogMetrics metrics = this.metrics;
+        long started = metrics == null ? 0 : System.nanoTime();
+        int[] counts = new int[LogColumns.MAX_EMOJIS];
+        countsByRange(start, end, counts, metrics, LogMetrics.Operation.SUMMARY_RANGE);
+        Map<String, Integer> summary = toSummary(counts);
+        if (metrics != null) {
+            metrics.allocated(0, 2);
+            metrics.record(LogMetrics.Operation.SUMMARY_RANGE, started);
+        }
+        return summary;
+    }
+
+    /**
+     * Number of distinct emojis known to the store; every emoji ordinal is below this
+     * The number only grows, when a new emoji is logged
+     */
+    public int getEmojiCount() {
+        return columns.emojiCount();
+    }
+
+    /**
+     * Emoji for an ordinal from forEachLogByDate or getCountsByDate; ordinals of EMOJIS match their
+     * position in that list
+     */
+    public String getEmoji(int ordinal) {
+        return columns.emoji(ordinal);
     }
 
     /**
-     * Builds a frequency table (emoji -> count) for all logs that fall on the given date
+     * Returns the frequency table (emoji -> count) for all logs that fall on the given date
+     * Built from the day's running counts, so the cost depends on the number of distinct emojis
      * Empty map indicates no logs that day
      */
     public Map<String, Integer> getSummaryByDate(Date date) {
-        Map<String, Integer> counts = new HashMap<>();
-        for (LogEntry entry : getLogsByDate(date)) {
-            counts.put(entry.getEmoji(), counts.getOrDefault(entry.getEmoji(), 0) + 1);
+        LogMetrics metrics = this.metrics;
+        long started = metrics == null ? 0 : System.nanoTime();
+        int[] counts = new int[LogColumns.MAX_EMOJIS];
+        countsByDate(epochDay(date.getTime()), counts, metrics);
+        Map<String, Integer> summary = toSummary(counts);
+        if (metrics != null) {
+            metrics.allocated(0, 2);
+            metrics.record(LogMetrics.Operation.SUMMARY_BY_DATE, started);
+        }
+        return summary;
+    }
+
+    private Map<String, Integer> toSummary(int[] counts) {
+        Map<String, Integer> summary = new HashMap<>();
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            if (counts[ordinal] > 0) {
+                summary.put(columns.emoji(ordinal), counts[ordinal]);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Copies one day's running counts, optimistically first; shared by getCountsByDate and
+     * getSummaryByDate
+     */
+    private int countsByDate(long day, int[] counts, LogMetrics metrics) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int total = readCounts(day, counts);
+                if (lock.validate(stamp)) {
+                    if (metrics != null) {
+                        metrics.optimisticRead(true);
+                    }
+                    return total;
+                }
+            } catch (RuntimeException raced) {
+                // a writer changed the arrays mid-read; read again under the lock
+            }
+        }
+        if (metrics != null) {
+            metrics.optimisticRead(false);
+        }
+        stamp = lock.readLock();
+        try {
+            return readCounts(day, counts);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Sums a range of days from the prefix sums, optimistically first and rebuilding them if they
+     * were dropped; shared by getCountsByRange and getSummaryRange, which pass themselves as the
+     * operation to charge
+     */
+    private int countsByRange(Date start, Date end, int[] counts, LogMetrics metrics, LogMetrics.Operation operation) {
+        long startDay = epochDay(start.getTime());
+        long endDay = epochDay(end.getTime());
+        if (endDay < startDay) {
+            throw new IllegalArgumentException("Range ends before it starts: " + start + " to " + end);
+        }
+        checkCapacity(counts);
+        long stamp = lock.tryOptimisticRead();
+        PrefixSums sums = prefixSums;
+        if (stamp != 0 && sums != null) {
+            try {
+                int total = sums.sum(startDay, endDay, counts);
+                if (lock.validate(stamp)) {
+                    if (metrics != null) {
+                        metrics.optimisticRead(true);
+                        metrics.prefixSums(true);
+                    }
+                    return total;
+                }
+            } catch (RuntimeException raced) {
+                // a writer changed the trees mid-read; read again under the lock
+            }
+            if (metrics != null) {
+                metrics.optimisticRead(false);
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            // recorded once per query, here or after a valid optimistic read, never for a read that raced
+            sums = prefixSums;
+            boolean current = sums != null;
+            if (!current) {
+                sums = buildPrefixSums();
+                if (metrics != null) {
+                    metrics.scanned(operation, sums.size);
+                    metrics.allocated(0, 2);
+                }
+            }
+            if (metrics != null) {
+                metrics.prefixSums(current);
+            }
+            return sums.sum(startDay, endDay, counts);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Builds LogEntry views for a page of one day's rows; may throw or return a torn list when it
+     * races a writer outside the lock
+     */
+    private List<LogEntry> readLogs(long day, int offset, int limit, LogMetrics metrics) {
+        DayBucket bucket = logsByDay.get(day);
+        if (bucket == null || offset >= bucket.size) {
+            if (metrics != null) {
+                metrics.allocated(0, 1);
+            }
+            return new ArrayList<>();
+        }
+        int end = offset + Math.min(limit, bucket.size - offset);
+        if (metrics != null) {
+            metrics.allocated(end - offset, 1);
+        }
+        int[] rows = bucket.rows;
+        List<LogEntry> logs = new ArrayList<>(end - offset);
+        for (int i = offset; i < end; i++) {
+            int row = rows[i];
+            logs.add(new LogEntry(columns.id(row), columns.emoji(columns.emojiOrdinal(row)),
+                    new Date(columns.millis(row))));
+        }
+        return logs;
+    }
+
+    /**
+     * Copies one day's running counts; may throw or copy torn counts when it races a writer
+     * outside the lock
+     */
+    private int readCounts(long day, int[] counts) {
+        checkCapacity(counts);
+        Arrays.fill(counts, 0);
+        DayBucket bucket = logsByDay.get(day);
+        if (bucket == null) {
+            return 0;
+        }
+        int[] dayCounts = bucket.counts;
+        System.arraycopy(dayCounts, 0, counts, 0, dayCounts.length);
+        return bucket.size;
+    }
+
+    private void checkCapacity(int[] counts) {
+        if (counts.length < columns.emojiCount()) {
+            throw new IllegalArgumentException("counts needs " + columns.emojiCount() + " slots");
+        }
+    }
+
+    /**
+     * Waits until a restore started by openStorageInBackground is done, if one is running
+     */
+    private void awaitRestore() {
+        CountDownLatch pending = restoring;
+        if (pending == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                pending.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true; // the store must not be used half restored; keep waiting
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a compaction on COMPACTOR after a change that filled the journal segment, unless one
+     * is already queued; a failure is retried after a later change since the journal still holds
+     * everything
+     */
+    private void compactIf(boolean compactNow) {
+        if (!compactNow || !compactionQueued.compareAndSet(false, true)) {
+            return;
+        }
+        COMPACTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact();
+                } catch (IOException ignored) {
+                    // the journal keeps growing until a later compaction succeeds
+                } finally {
+                    compactionQueued.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Builds the per-emoji prefix sums from the day buckets in one pass and publishes them
+     * Runs under the read lock, so no writer can make the result stale before it is published;
+     * concurrent rebuilds publish equal sums
+     */
+    private PrefixSums buildPrefixSums() {
+        int emojis = columns.emojiCount();
+        int size = logsByDay.size();
+        long[] days = new long[Math.max(16, size * 2)];
+        int[] tree = new int[days.length * emojis];
+        int node = 1;
+        for (Map.Entry<Long, DayBucket> day : logsByDay.entrySet()) {
+            days[node - 1] = day.getKey();
+            int[] counts = day.getValue().counts;
+            int base = node * emojis;
+            for (int ordinal = 0; ordinal < emojis; ordinal++) {
+                tree[base + ordinal] += ordinal < counts.length ? counts[ordinal] : 0;
+            }
+            // pass the node's sums on to the next node that covers it
+            int parent = node + (node & -node);
+            if (parent <= size) {
+                for (int ordinal = 0; ordinal < emojis; ordinal++) {
+                    tree[parent * emojis + ordinal] += tree[base + ordinal];
+                }
+            }
+            node++;
+        }
+        PrefixSums built = new PrefixSums(days, size, tree, emojis);
+        prefixSums = built;
+        return built;
+    }
+
+    /**
+     * Applies a change of one emoji's count on one day to the prefix sums, under the write lock
+     * Drops them instead (the next range query rebuilds them) when the day would have to go before
+     * the last day they cover or the emoji is newer than they are
+     *
+     * @param bucket The day's bucket, already including the change
+     */
+    private void countInRange(long day, int ordinal, int delta, DayBucket bucket) {
+        PrefixSums sums = prefixSums;
+        if (sums == null) {
+            return;
+        }
+        if (ordinal >= sums.emojis) {
+            prefixSums = null;
+            return;
+        }
+        int index = sums.firstDayAtOrAfter(day);
+        if (index < sums.size && sums.days[index] == day) {
+            sums.add(index, ordinal, delta);
+        } else if (index == sums.size) {
+            sums.append(day, bucket.counts);
+        } else {
+            prefixSums = null;
+        }
+    }
+
+    /**
+     * Appends a row and indexes it; shared by addLog and replay, under the write lock
+     */
+    private void insert(long id, long timestampMillis, int ordinal) {
+        int row = columns.append(id, timestampMillis, ordinal);
+        long day = epochDay(timestampMillis);
+        DayBucket bucket = logsByDay.get(day);
+        if (bucket == null) {
+            bucket = new DayBucket();
+            logsByDay.put(day, bucket);
+        }
+        bucket.add(row);
+        bucket.count(ordinal, 1);
+        countInRange(day, ordinal, 1, bucket);
+        nextId = id + 1;
+    }
+
+    /**
+     * Moves a row's count to a new emoji and updates the row; shared by updateEmoji and replay,
+     * under the write lock
+     */
+    private void changeEmoji(int row, int ordinal) {
+        long day = epochDay(columns.millis(row));
+        DayBucket bucket = logsByDay.get(day);
+        int previous = columns.emojiOrdinal(row);
+        bucket.count(previous, -1);
+        columns.setEmojiOrdinal(row, ordinal);
+        bucket.count(ordinal, 1);
+        countInRange(day, previous, -1, bucket);
+        countInRange(day, ordinal, 1, bucket);
+    }
+
+    /**
+     * Removes a row from the day index and marks it deleted; shared by removeLog and replay, under
+     * the write lock
+     */
+    private void delete(int row) {
+        long day = epochDay(columns.millis(row));
+        DayBucket bucket = logsByDay.get(day);
+        int ordinal = columns.emojiOrdinal(row);
+        bucket.remove(row);
+        bucket.count(ordinal, -1);
+        countInRange(day, ordinal, -1, bucket);
+        if (bucket.size == 0) {
+            logsByDay.remove(day);
         }
-        return counts;
+        columns.delete(row);
     }
 
     /**
-     * Determines whether two Date instances represent the same calendar day
+     * Converts a timestamp to its local calendar day, counted in days since 1970-01-01
+     * Uses the zone's offset at that instant, so daylight-saving shifts land on the right day
      */
-    private boolean isSameDay(Date d1, Date d2) {
-        return d1.getYear() == d2.getYear() &&
-                d1.getMonth() == d2.getMonth() &&
-                d1.getDate() == d2.getDate();
+    private long epochDay(long millis) {
+        return Math.floorDiv(millis + timeZone.getOffset(millis), MILLIS_PER_DAY);
     }
 }
@@ -0,0 +1,285 @@
+package com.example.emotilog;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms for LogManager's public operations, read through snapshots
+ *
+ * Longer context: LogManager records into one LogMetrics while metrics are enabled
+ * (setMetricsEnabled) and holds none otherwise, so a disabled store pays one volatile read and a
+ * null check per call. Per operation it keeps the number of calls, total time, a latency histogram
+ * with power-of-two nanosecond buckets, and how much stored data the calls scanned. Store-wide it
+ * counts the LogEntry views and result containers (lists, maps, prefix-sum arrays) that queries
+ * allocate, how often an optimistic read held versus had to be repeated under the read lock, and
+ * how often a range query found the prefix sums current versus rebuilt them. getMetrics() copies
+ * all of it into an immutable Snapshot for unit tests or a debug screen; Snapshot.toString() is a
+ * readable table
+ *
+ * Assumptions: Recording happens on the calling thread with atomic adds, so counters are exact, but
+ * a snapshot taken while operations run may mix counts from slightly different moments
+ *
+ * Limitations:
+ * - Latencies are bucketed, so percentiles are accurate to a factor of two
+ * - Allocation counts cover what LogManager creates for results, not the JVM's own allocations
+ */
+public final class LogMetrics {
+    /**
+     * The LogManager operations that are timed; a summary method is counted as itself only, not
+     * also as the count method it is built on
+     */
+    public enum Operation {
+        ADD_LOG,
+        UPDATE_EMOJI,
+        REMOVE_LOG,
+        LOGS_BY_DATE, // getLogsByDate; scanned = log rows read
+        FOR_EACH_LOG_BY_DATE, // forEachLogByDate; scanned = log rows visited
+        COUNTS_BY_DATE, // getCountsByDate
+        COUNTS_BY_RANGE, // getCountsByRange; scanned = day buckets read by prefix-sum rebuilds
+        SUMMARY_BY_DATE, // getSummaryByDate
+        SUMMARY_RANGE, // getSummaryRange; scanned as for COUNTS_BY_RANGE
+        COMPACT
+    }
+
+    static final int BUCKETS = 40; // bucket b counts latencies in [2^b, 2^(b+1)) ns; the last one is open-ended
+    private static final int OPERATIONS = Operation.values().length;
+
+    // per-operation counters, indexed by Operation.ordinal()
+    private final AtomicLongArray calls = new AtomicLongArray(OPERATIONS); // completed calls
+    private final AtomicLongArray nanos = new AtomicLongArray(OPERATIONS); // total time of those calls
+    private final AtomicLongArray scanned = new AtomicLongArray(OPERATIONS); // log rows or day buckets read
+    private final AtomicLongArray latencies = new AtomicLongArray(OPERATIONS * BUCKETS); // [op * BUCKETS + bucket] -> calls
+
+    // store-wide counters, indexed by the constants below
+    private static final int ENTRY_VIEWS = 0; // LogEntry views built
+    private static final int CONTAINERS = 1; // lists, maps, and arrays allocated for results
+    private static final int OPTIMISTIC_READS = 2; // queries whose optimistic read held
+    private static final int LOCKED_READS = 3; // queries repeated under the read lock after racing a writer
+    private static final int PREFIX_SUM_HITS = 4; // range queries that found the prefix sums current
+    private static final int PREFIX_SUM_REBUILDS = 5; // range queries that rebuilt them
+    private final AtomicLongArray counters = new AtomicLongArray(6);
+
+    LogMetrics() {
+    }
+
+    /**
+     * Records one finished call and its latency
+     *
+     * @param startedNanos System.nanoTime() taken when the call began
+     */
+    void record(Operation operation, long startedNanos) {
+        long elapsed = Math.max(0, System.nanoTime() - startedNanos);
+        int op = operation.ordinal();
+        calls.incrementAndGet(op);
+        nanos.addAndGet(op, elapsed);
+        int bucket = elapsed == 0 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(elapsed));
+        latencies.incrementAndGet(op * BUCKETS + bucket);
+    }
+
+    void scanned(Operation operation, int count) {
+        scanned.addAndGet(operation.ordinal(), count);
+    }
+
+    /**
+     * @param entryViews LogEntry views built
+     * @param containers Lists, maps, or arrays allocated to hold a result
+     */
+    void allocated(int entryViews, int containers) {
+        counters.addAndGet(ENTRY_VIEWS, entryViews);
+        counters.addAndGet(CONTAINERS, containers);
+    }
+
+    /**
+     * @param held true if the optimistic read was valid, false if it had to be repeated under the lock
+     */
+    void optimisticRead(boolean held) {
+        counters.incrementAndGet(held ? OPTIMISTIC_READS : LOCKED_READS);
+    }
+
+    /**
+     * @param hit true if the prefix sums were current, false if the query rebuilt them
+     */
+    void prefixSums(boolean hit) {
+        counters.incrementAndGet(hit ? PREFIX_SUM_HITS : PREFIX_SUM_REBUILDS);
+    }
+
+    /**
+     * Copies the current values into an immutable snapshot
+     */
+    Snapshot snapshot() {
+        long[] callsCopy = new long[OPERATIONS];
+        long[] nanosCopy = new long[OPERATIONS];
+        long[] scannedCopy = new long[OPERATIONS];
+        long[] latenciesCopy = new long[OPERATIONS * BUCKETS];
+        for (int op = 0; op < OPERATIONS; op++) {
+            callsCopy[op] = calls.get(op);
+            nanosCopy[op] = nanos.get(op);
+            scannedCopy[op] = scanned.get(op);
+        }
+        for (int i = 0; i < latenciesCopy.length; i++) {
+            latenciesCopy[i] = latencies.get(i);
+        }
+        long[] countersCopy = new long[counters.length()];
+        for (int i = 0; i < countersCopy.length; i++) {
+            countersCopy[i] = counters.get(i);
+        }
+        return new Snapshot(callsCopy, nanosCopy, scannedCopy, latenciesCopy, countersCopy);
+    }
+
+    /**
+     * Immutable copy of the metrics at one moment; all zero when metrics are disabled
+     */
+    public static final class Snapshot {
+        private final long[] calls; // Operation.ordinal() -> completed calls
+        private final long[] nanos; // Operation.ordinal() -> total time
+        private final long[] scanned; // Operation.ordinal() -> log rows or day buckets read
+        private final long[] latencies; // [op * BUCKETS + bucket] -> calls
+        private final long[] counters; // store-wide counters, indexed like LogMetrics.counters
+
+        private Snapshot(long[] calls, long[] nanos, long[] scanned, long[] latencies, long[] counters) {
+            this.calls = calls;
+            this.nanos = nanos;
+            this.scanned = scanned;
+            this.latencies = latencies;
+            this.counters = counters;
+        }
+
+        public long getCalls(Operation operation) {
+            return calls[operation.ordinal()];
+        }
+
+        public long getTotalNanos(Operation operation) {
+            return nanos[operation.ordinal()];
+        }
+
+        /**
+         * Mean latency, or 0 if the operation was not called
+         */
+        public long getMeanNanos(Operation operation) {
+            long count = getCalls(operation);
+            return count == 0 ? 0 : getTotalNanos(operation) / count;
+        }
+
+        /**
+         * Calls per latency bucket: element b counts calls that took [2^b, 2^(b+1)) nanoseconds
+         *
+         * @return A new array of BUCKETS elements
+         */
+        public long[] getLatencyHistogram(Operation operation) {
+            int from = operation.ordinal() * BUCKETS;
+            return Arrays.copyOfRange(latencies, from, from + BUCKETS);
+        }
+
+        /**
+         * Latency that the given fraction of calls stayed under, rounded up to a bucket boundary
+         *
+         * @param fraction e.g. 0.5 for the median, 0.99 for the 99th percentile
+         * @return Upper bound of the bucket holding that call, or 0 if the operation was not called
+         */
+        public long getLatencyPercentileNanos(Operation operation, double fraction) {
+            long count = getCalls(operation);
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            int from = operation.ordinal() * BUCKETS;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += latencies[from + bucket];
+                if (seen >= rank) {
+                    return 1L << (bucket + 1);
+                }
+            }
+            return 1L << BUCKETS;
+        }
+
+        /**
+         * Log rows (or, for range queries, day buckets) read by the operation's calls
+         */
+        public long getScanned(Operation operation) {
+            return scanned[operation.ordinal()];
+        }
+
+        /**
+         * Mean of getScanned per call, or 0 if the operation was not called
+         */
+        public double getScannedPerCall(Operation operation) {
+            long count = getCalls(operation);
+            return count == 0 ? 0 : (double) getScanned(operation) / count;
+        }
+
+        /**
+         * LogEntry views built by queries, including views from reads that were repeated
+         */
+        public long getEntryViews() {
+            return counters[ENTRY_VIEWS];
+        }
+
+        /**
+         * Lists, maps, and arrays allocated by queries to hold their results
+         */
+        public long getContainers() {
+            return counters[CONTAINERS];
+        }
+
+        public long getOptimisticReads() {
+            return counters[OPTIMISTIC_READS];
+        }
+
+        public long getLockedReads() {
+            return counters[LOCKED_READS];
+        }
+
+        /**
+         * Share of optimistic reads that did not have to be repeated under the read lock, or 0 if none
+         */
+        public double getOptimisticHitRate() {
+            return rate(getOptimisticReads(), getLockedReads());
+        }
+
+        public long getPrefixSumHits() {
+            return counters[PREFIX_SUM_HITS];
+        }
+
+        public long getPrefixSumRebuilds() {
+            return counters[PREFIX_SUM_REBUILDS];
+        }
+
+        /**
+         * Share of range queries that found the prefix sums current, or 0 if none ran
+         */
+        public double getPrefixSumHitRate() {
+            return rate(getPrefixSumHits(), getPrefixSumRebuilds());
+        }
+
+        private static double rate(long hits, long misses) {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+
+        /**
+         * One line per called operation (calls, mean, p50, p99, scanned per call) followed by the
+         * store-wide counters; meant for a debug screen or a test failure message
+         */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (Operation operation : Operation.values()) {
+                if (getCalls(operation) == 0) {
+                    continue;
+                }
+                text.append(String.format(Locale.ROOT, "%s: %d calls, mean %d us, p50 < %d us, p99 < %d us, %.1f scanned/call%n",
+                        operation, getCalls(operation), getMeanNanos(operation) / 1000,
+                        getLatencyPercentileNanos(operation, 0.5) / 1000,
+                        getLatencyPercentileNanos(operation, 0.99) / 1000,
+                        getScannedPerCall(operation)));
+            }
+            text.append(String.format(Locale.ROOT, "entry views %d, containers %d%n", getEntryViews(), getContainers()));
+            text.append(String.format(Locale.ROOT, "optimistic reads %d, locked reads %d (%.1f%% held)%n",
+                    getOptimisticReads(), getLockedReads(), getOptimisticHitRate() * 100));
+            text.append(String.format(Locale.ROOT, "prefix sum hits %d, rebuilds %d (%.1f%% hit)",
+                    getPrefixSumHits(), getPrefixSumRebuilds(), getPrefixSumHitRate() * 100));
+            return text.toString();
+        }
+    }
+}
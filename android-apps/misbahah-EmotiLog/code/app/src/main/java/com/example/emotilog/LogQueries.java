@@ -0,0 +1,149 @@
+package com.example.emotilog;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs LogManager queries off the main thread and delivers only the latest result back on it
+ *
+ * Longer context: Each screen owns one LogQueries. submit() hands the query to a background thread
+ * shared by all screens and posts the result to the main thread. Every submit supersedes the
+ * screen's previous query: if that one has not started it is dropped, and if it is already running
+ * its result is discarded instead of delivered. Picking dates quickly therefore costs at most one
+ * query in flight plus the newest one, and the screen never shows an older date's data after a newer one
+ *
+ * A query that throws is logged and, if it is still the latest, reported to its Failure on the
+ * main thread instead of a result, so the screen can leave its loading state
+ *
+ * Assumptions: submit and cancel are called on the main thread; queries only read from LogManager.
+ * Unit tests pass their own executors for the background and main threads
+ *
+ * Limitations: A query that is already running is not interrupted, only ignored when it finishes
+ */
+public class LogQueries {
+    private static final String TAG = "LogQueries"; // Logcat tag for queries that failed
+    // one background thread for all screens; queries are short and LogManager reads do not block each other
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "LogQueries");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A read against LogManager, run on the background thread
+     */
+    public interface Query<T> {
+        T run(LogManager manager);
+    }
+
+    /**
+     * Receives a query's result on the main thread
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    /**
+     * Receives, on the main thread, the exception a query threw instead of returning a result
+     */
+    public interface Failure {
+        void onFailure(RuntimeException error);
+    }
+
+    private final Executor background; // runs queries; EXECUTOR in the app
+    private final Executor main; // runs callbacks; posts to the main thread in the app
+    private volatile long generation; // number of the latest submit or cancel; only its result is delivered
+    private Future<?> pending; // the latest submitted query, cancelled by the next one
+
+    /**
+     * Runs queries on the shared background thread and delivers results on the main thread
+     */
+    public LogQueries() {
+        this(EXECUTOR, new Handler(Looper.getMainLooper())::post);
+    }
+
+    /**
+     * @param background Runs the queries
+     * @param main Runs the callbacks; must be the thread that calls submit and cancel
+     */
+    LogQueries(Executor background, Executor main) {
+        this.background = background;
+        this.main = main;
+    }
+
+    /**
+     * Runs a query in the background and passes its result to callback on the main thread,
+     * superseding any query submitted earlier through this instance; a failed query is only logged
+     */
+    public <T> void submit(final Query<T> query, final Callback<T> callback) {
+        submit(query, callback, null);
+    }
+
+    /**
+     * Runs a query in the background and passes its result to callback, or the exception it threw
+     * to failure, on the main thread, superseding any query submitted earlier through this instance
+     *
+     * @param failure Told when the query throws; null to only log it
+     */
+    public <T> void submit(final Query<T> query, final Callback<T> callback, final Failure failure) {
+        final long ticket = supersede();
+        FutureTask<Void> task = new FutureTask<>(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != ticket) {
+                    return; // superseded while waiting in the queue
+                }
+                final T result;
+                try {
+                    result = query.run(LogManager.getInstance());
+                } catch (final RuntimeException error) {
+                    Log.e(TAG, "Query failed", error);
+                    if (failure != null) {
+                        main.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (generation == ticket) {
+                                    failure.onFailure(error);
+                                }
+                            }
+                        });
+                    }
+                    return;
+                }
+                main.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == ticket) {
+                            callback.onResult(result);
+                        }
+                    }
+                });
+            }
+        }, null);
+        pending = task;
+        background.execute(task);
+    }
+
+    /**
+     * Drops the pending query, if any, so no result is delivered; call from onDestroy
+     */
+    public void cancel() {
+        supersede();
+    }
+
+    private long supersede() {
+        long ticket = ++generation; // only the main thread writes generation
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        return ticket;
+    }
+}
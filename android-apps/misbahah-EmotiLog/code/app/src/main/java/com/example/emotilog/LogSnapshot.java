@@ -0,0 +1,167 @@
+package com.example.emotilog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Compact point-in-time image of every stored log entry, read back through a memory-mapped file
+ *
+ * Longer context: LogStorage writes a snapshot when it compacts the journal, so a cold start loads
+ * one snapshot plus a short journal tail instead of replaying every operation ever made. Reading
+ * maps the file with FileChannel.map and decodes entries straight from the MappedByteBuffer, without
+ * stream buffering or copying the file into the heap first
+ *
+ * File format: [int magic][long generation][long nextId][int emoji count]
+ * [per emoji: short byte length + UTF-8 bytes][int entry count]
+ * [per entry: long id, long timestamp millis, short emoji index][int CRC32 of everything before it]
+ *
+ * Assumptions: Snapshots are only replaced by writing a temporary file and renaming it over the
+ * old one, so a reader never sees a half-written snapshot
+ *
+ * Limitations: The whole history is rewritten on every compaction; fine for years of taps (a few
+ * megabytes) but not meant for unbounded data
+ */
+public class LogSnapshot {
+    private static final int MAGIC = 0x454D5331; // "EMS1": identifies the file and its format version
+    private static final int ENTRY_BYTES = 8 + 8 + 2; // id, timestamp, emoji index
+
+    private final long generation; // first journal segment NOT included in this snapshot
+    private final long nextId; // LogManager's next entry id when the snapshot was taken
+
+    private LogSnapshot(long generation, long nextId) {
+        this.generation = generation;
+        this.nextId = nextId;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public long getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Encodes the live rows of the given columns as snapshot file contents
+     * The emoji table is the columns' dictionary, so stored indexes are the in-memory ordinals
+     *
+     * @param generation First journal segment whose operations are not part of these rows
+     * @param nextId Id the next new entry will receive
+     * @param columns Every stored entry; must not change while being encoded
+     * @return Bytes to pass to write()
+     */
+    static byte[] encode(long generation, long nextId, LogColumns columns) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + columns.liveRows() * ENTRY_BYTES);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeLong(generation);
+            out.writeLong(nextId);
+            out.writeInt(columns.emojiCount());
+            for (int ordinal = 0; ordinal < columns.emojiCount(); ordinal++) {
+                byte[] utf8 = columns.emoji(ordinal).getBytes(StandardCharsets.UTF_8);
+                out.writeShort(utf8.length);
+                out.write(utf8);
+            }
+            out.writeInt(columns.liveRows());
+            for (int row = 0; row < columns.rows(); row++) {
+                if (!columns.isDeleted(row)) {
+                    out.writeLong(columns.id(row));
+                    out.writeLong(columns.millis(row));
+                    out.writeShort(columns.emojiOrdinal(row));
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray(), 0, bytes.size());
+            out.writeInt((int) crc.getValue());
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // writes to memory cannot fail
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Atomically replaces the snapshot file with contents made by encode()
+     *
+     * @param file Snapshot file to create or replace
+     * @param contents Encoded snapshot
+     * @throws IOException If the snapshot cannot be written; the previous snapshot is then kept
+     */
+    static void write(File file, byte[] contents) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            stream.write(contents);
+            stream.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace snapshot " + file);
+        }
+    }
+
+    /**
+     * Maps a snapshot file and hands every entry to the callback as an add, in stored order
+     *
+     * @param file Snapshot file written by write()
+     * @param replay Receives one onAdd per stored entry
+     * @return Generation and next id recorded in the snapshot, or null if the file does not exist
+     * @throws IOException If the file cannot be read or is corrupt
+     */
+    static LogSnapshot read(File file, LogJournal.Replay replay) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < 4 || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot has an invalid size: " + size);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            CRC32 crc = new CRC32();
+            byte[] chunk = new byte[8192];
+            for (int offset = 0; offset < size - 4; offset += chunk.length) {
+                int length = (int) Math.min(chunk.length, size - 4 - offset);
+                map.get(chunk, 0, length);
+                crc.update(chunk, 0, length);
+            }
+            if (map.getInt((int) size - 4) != (int) crc.getValue()) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+            map.position(0);
+
+            try {
+                if (map.getInt() != MAGIC) {
+                    throw new IOException("Not a snapshot file: " + file);
+                }
+                long generation = map.getLong();
+                long nextId = map.getLong();
+                String[] emojis = new String[map.getInt()];
+                for (int i = 0; i < emojis.length; i++) {
+                    byte[] utf8 = new byte[map.getShort() & 0xFFFF];
+                    map.get(utf8);
+                    emojis[i] = new String(utf8, StandardCharsets.UTF_8);
+                }
+                int count = map.getInt();
+                for (int i = 0; i < count; i++) {
+                    long id = map.getLong();
+                    long timestamp = map.getLong();
+                    replay.onAdd(id, timestamp, emojis[map.getShort()]);
+                }
+                return new LogSnapshot(generation, nextId);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new IOException("Snapshot is truncated or malformed: " + file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.emotilog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * On-disk home of the log history: one snapshot plus numbered journal segments in a directory
+ *
+ * Longer context: Every change is appended to the current journal segment (journal-N.log). Once the
+ * segment holds COMPACT_AFTER_RECORDS records, LogManager asks for a compaction: appends move to a
+ * fresh segment N+1, the full current state is written as snapshot.bin tagged with generation N+1,
+ * and segments below N+1 are deleted. Startup therefore maps one snapshot and replays only the
+ * segments written since it, instead of every operation ever made
+ *
+ * Crash safety: the new segment is opened before the snapshot is written, and old segments are only
+ * deleted after the snapshot has been renamed into place. A crash at any point leaves either the old
+ * snapshot plus all segments it needs, or the new snapshot (older segments are then ignored and
+ * cleaned up on the next open)
+ *
+ * Compaction runs in three steps so only an in-memory step holds a lock: prepareCompaction creates
+ * and syncs the next segment, startCompaction switches appends to it and encodes the state in memory
+ * while LogManager keeps writers out, and finishCompaction does the rest of the file I/O (closing
+ * the old segment, writing the snapshot, deleting segments) while writers carry on
+ *
+ * Assumptions: Only one LogStorage per directory; appends and startCompaction are serialized by
+ * LogManager's lock, and one compaction runs at a time, on one thread. flush may be called from any
+ * thread
+ *
+ * Limitations: Encoding the snapshot still copies the whole history while writers wait
+ */
+public class LogStorage implements Closeable {
+    static final int COMPACT_AFTER_RECORDS = 5000; // journal records in one segment that trigger a compaction
+    private static final String SNAPSHOT_FILE = "snapshot.bin"; // snapshot file name in the directory
+    private static final String SEGMENT_PREFIX = "journal-"; // journal segment names: journal-<generation>.log
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // a new segment has nothing to replay
+    private static final LogJournal.Replay NO_REPLAY = new LogJournal.Replay() {
+        @Override
+        public void onAdd(long id, long timestampMillis, String emoji) {
+        }
+
+        @Override
+        public void onEdit(long id, String emoji) {
+        }
+
+        @Override
+        public void onDelete(long id) {
+        }
+    };
+
+    private final File directory; // directory holding the snapshot and segments
+    private final long restoredNextId; // next entry id recorded in the snapshot, 0 without one
+    private long generation; // number of the segment currently appended to
+    private volatile LogJournal journal; // open writer for the current segment
+    private volatile LogJournal previous; // segment being retired by a running compaction, else null
+    private LogJournal prepared; // next segment opened by prepareCompaction, not yet appended to
+    private int segmentRecords; // records in the current segment, replayed or appended
+
+    /**
+     * A compaction between startCompaction and finishCompaction: the retired segment and the
+     * encoded snapshot that replaces it
+     */
+    public static final class Compaction {
+        private final long generation; // first segment not covered by the snapshot
+        private final byte[] snapshot; // encoded snapshot contents
+
+        private Compaction(long generation, byte[] snapshot) {
+            this.generation = generation;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private LogStorage(File directory, long restoredNextId, long generation, LogJournal journal, int segmentRecords) {
+        this.directory = directory;
+        this.restoredNextId = restoredNextId;
+        this.generation = generation;
+        this.journal = journal;
+        this.segmentRecords = segmentRecords;
+    }
+
+    /**
+     * Restores the history in a directory (creating it if needed) and opens it for appending
+     * Loads the snapshot, replays the newer journal segments in order, and removes segments the
+     * snapshot already covers
+     *
+     * @param directory Storage directory, typically new File(getFilesDir(), "emotilog")
+     * @param replay Receives every stored entry (as adds) and every later operation, in order
+     * @return Storage ready for appends
+     * @throws IOException If the directory, snapshot, or a segment cannot be read or written
+     */
+    public static LogStorage open(File directory, LogJournal.Replay replay) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        LogSnapshot snapshot = LogSnapshot.read(new File(directory, SNAPSHOT_FILE), replay);
+        long first = snapshot == null ? 0 : snapshot.getGeneration();
+
+        final int[] records = new int[1];
+        LogJournal.Replay counting = new LogJournal.Replay() {
+            @Override
+            public void onAdd(long id, long timestampMillis, String emoji) {
+                records[0]++;
+                replay.onAdd(id, timestampMillis, emoji);
+            }
+
+            @Override
+            public void onEdit(long id, String emoji) {
+                records[0]++;
+                replay.onEdit(id, emoji);
+            }
+
+            @Override
+            public void onDelete(long id) {
+                records[0]++;
+                replay.onDelete(id);
+            }
+        };
+
+        List<Long> generations = segmentGenerations(directory);
+        long current = first;
+        for (long segment : generations) {
+            if (segment < first) {
+                new File(directory, segmentName(segment)).delete();
+            } else if (segment < generations.get(generations.size() - 1)) {
+                records[0] = 0;
+                LogJournal.replay(new File(directory, segmentName(segment)), counting);
+            } else {
+                current = segment;
+            }
+        }
+
+        // the newest segment is replayed by open() and stays open for appending
+        records[0] = 0;
+        LogJournal journal = LogJournal.open(new File(directory, segmentName(current)), counting);
+        return new LogStorage(directory, snapshot == null ? 0 : snapshot.getNextId(),
+                current, journal, records[0]);
+    }
+
+    /**
+     * Next entry id recorded in the snapshot; ids of deleted entries are never reused
+     */
+    public long getRestoredNextId() {
+        return restoredNextId;
+    }
+
+    public void appendAdd(long id, long timestampMillis, String emoji) {
+        journal.appendAdd(id, timestampMillis, emoji);
+        segmentRecords++;
+    }
+
+    public void appendEdit(long id, String emoji) {
+        journal.appendEdit(id, emoji);
+        segmentRecords++;
+    }
+
+    public void appendDelete(long id) {
+        journal.appendDelete(id);
+        segmentRecords++;
+    }
+
+    /**
+     * Whether the current segment has grown enough that compact() should be called
+     */
+    public boolean shouldCompact() {
+        return segmentRecords >= COMPACT_AFTER_RECORDS;
+    }
+
+    /**
+     * First step of a compaction: creates the segment appends will move to; may run concurrently
+     * with appends. Does nothing if a segment is already prepared
+     *
+     * @throws IOException If the new segment cannot be created; nothing has changed in that case
+     */
+    public void prepareCompaction() throws IOException {
+        if (prepared == null) {
+            prepared = LogJournal.open(new File(directory, segmentName(generation + 1)), NO_REPLAY);
+        }
+    }
+
+    /**
+     * Second step of a compaction: moves appends to the prepared segment and encodes the given
+     * state as the next snapshot, without touching files; must not run concurrently with appends
+     *
+     * @param nextId Id the next new entry will receive
+     * @param columns Every stored entry, including every operation appended so far
+     * @return Pending compaction to pass to finishCompaction
+     * @throws IllegalStateException If prepareCompaction has not succeeded since the last compaction
+     */
+    public Compaction startCompaction(long nextId, LogColumns columns) {
+        if (prepared == null) {
+            throw new IllegalStateException("prepareCompaction has not run");
+        }
+        previous = journal;
+        journal = prepared;
+        prepared = null;
+        generation++;
+        segmentRecords = 0;
+        return new Compaction(generation, LogSnapshot.encode(generation, nextId, columns));
+    }
+
+    /**
+     * Last step of a compaction: closes the retired segment, writes the snapshot, and reclaims the
+     * journal segments it replaces; may run concurrently with appends
+     *
+     * @throws IOException If the snapshot could not be written; the journal still holds everything
+     */
+    public void finishCompaction(Compaction compaction) throws IOException {
+        try {
+            previous.close();
+        } catch (IOException ignored) {
+            // the snapshot written below covers the retired segment's records anyway
+        } finally {
+            previous = null;
+        }
+        LogSnapshot.write(new File(directory, SNAPSHOT_FILE), compaction.snapshot);
+        for (long segment : segmentGenerations(directory)) {
+            if (segment < compaction.generation) {
+                new File(directory, segmentName(segment)).delete();
+            }
+        }
+    }
+
+    /**
+     * Forces every appended operation to disk, including any still in a segment being retired
+     */
+    public void flush() throws IOException {
+        // read journal before previous: startCompaction sets previous before it replaces journal
+        LogJournal current = journal;
+        LogJournal retiring = previous;
+        if (retiring != null) {
+            retiring.flush();
+        }
+        current.flush();
+    }
+
+    /**
+     * Starts syncing every appended operation on the journals' background threads and returns at once
+     */
+    public void flushInBackground() {
+        // read journal before previous, as in flush()
+        LogJournal current = journal;
+        LogJournal retiring = previous;
+        if (retiring != null) {
+            retiring.commitInBackground();
+        }
+        current.commitInBackground();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (prepared != null) {
+            prepared.close();
+            prepared = null;
+        }
+        journal.close();
+    }
+
+    private static String segmentName(long generation) {
+        return SEGMENT_PREFIX + generation + SEGMENT_SUFFIX;
+    }
+
+    /**
+     * Lists the generations of the journal segments in a directory, oldest first
+     */
+    private static List<Long> segmentGenerations(File directory) {
+        List<Long> generations = new ArrayList<>();
+        String[] names = directory.list();
+        if (names == null) {
+            return generations;
+        }
+        for (String name : names) {
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    generations.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+}
@@ -8,22 +8,20 @@ import android.widget.GridLayout;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
-
 import java.util.Date;
 
 /**
  * Home screen showing a 3x3 emoji grid and navigation shortcuts to other screens
  *
  * Longer context: Dynamically creates nine emoji buttons, logs taps to LogManager, and exposes
- * buttons that route to the event history and summary screens.
+ * buttons that route to the event history and summary screens. It starts a journal sync when the app
+ * leaves the screen; earlier history is restored by EmotiLogApplication.
  *
- * Assumptions: Immediate, in-memory logging is sufficient; no persistence required on the landing screen
+ * Assumptions: A tap made while history is still being restored may wait for the restore to finish
  *
  * Limitations: Layout relies on a simple LinearLayout/GridLayout combination; no landscape-specific tweaks.
  */
 public class MainActivity extends AppCompatActivity {
-    private final String[] emojis = {"😊","😢","😡","🤩","😴","😱","😐","😍","😭"};
-
     /**
      * Inflates the main layout, wires emoji buttons, and sets up navigation actions.
      */
@@ -33,7 +31,7 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         GridLayout grid = findViewById(R.id.emojiGrid);
-        for (final String emoji : emojis) {
+        for (final String emoji : LogManager.EMOJIS) {
             Button btn = new Button(this);
             btn.setText(emoji);
             btn.setTextSize(24);
@@ -66,4 +64,14 @@ public class MainActivity extends AppCompatActivity {
             }
         });
     }
+
+    /**
+     * Syncs pending journal records when the screen is hidden, since the process may be killed next
+     * The sync runs on the journal's background thread; fsync on the main thread can stall the UI
+     */
+    @Override
+    protected void onStop() {
+        super.onStop();
+        LogManager.getInstance().flushInBackground();
+    }
 }
@@ -7,27 +7,40 @@ import android.widget.Button;
 import android.widget.DatePicker;
 import android.widget.ListView;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Map;
+import java.util.Locale;
 
 /**
  * Screen for choosing a date and viewing emoji frequencies plus percentages
  *
- * Longer context: Fetches per-day summaries from LogManager and displays them via SummaryAdapter,
- * showing an empty-state TextView when no data is available.
+ * Longer context: Fetches emoji counts from LogManager for the selected day, or for the week, month,
+ * or year containing it, on a background thread through LogQueries, and hands the count vector to a
+ * single SummaryAdapter, which rebinds only the rows that changed. Picking another date or period
+ * supersedes a query still running, so only the latest choice is shown. Shows an empty-state
+ * TextView when no data is available. Opened while LogManager is still restoring history, it shows
+ * the part restored so far and loads again once the restore is done
  *
- * Assumptions: Summary only needs to reflect the currently selected local date
+ * Assumptions: Weeks start on the locale's first day of the week
  *
  * Limitations: None I can think of
  */
 public class SummaryActivity extends AppCompatActivity {
+    private static final String[] PERIOD_NAMES = {"Day", "Week", "Month", "Year"}; // labels of the summary periods
+    private static final int[] PERIOD_FIELDS = {
+            Calendar.DAY_OF_MONTH, Calendar.WEEK_OF_YEAR, Calendar.MONTH, Calendar.YEAR}; // Calendar field each period spans
+
     private Date selectedDate = new Date(); // Day currently being summarized; defaults to "today"
+    private int period; // index into PERIOD_NAMES of the span being summarized; 0 = single day
+    private Button btnPeriod; // Button that cycles through the summary periods
     private ListView summaryList; // ListView that renders emoji counts when data exists
     private TextView noEntries; // TextView that explains when no entries were logged
+    private SummaryAdapter adapter; // Adapter kept for the screen's lifetime and updated in place
+    private final LogQueries queries = new LogQueries(); // Runs the count queries off the main thread
 
     /**
      * Inflates the layout, loads the initial summary, and prepares the date picker button
@@ -41,8 +54,15 @@ public class SummaryActivity extends AppCompatActivity {
 
         summaryList = findViewById(R.id.summaryListView);
         noEntries = findViewById(R.id.noEntriesText);
+        adapter = new SummaryAdapter(this);
+        summaryList.setAdapter(adapter);
 
         loadSummary(selectedDate);
+        LogManager.getInstance().runWhenRestored(() -> runOnUiThread(() -> {
+            if (!isDestroyed()) {
+                loadSummary(selectedDate);
+            }
+        }));
 
         Button btnPickDateSummary = findViewById(R.id.btnPickDateSummary);
         btnPickDateSummary.setOnClickListener(new View.OnClickListener() {
@@ -51,6 +71,16 @@ public class SummaryActivity extends AppCompatActivity {
                 showDatePicker();
             }
         });
+
+        btnPeriod = findViewById(R.id.btnSummaryPeriod);
+        btnPeriod.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                period = (period + 1) % PERIOD_NAMES.length;
+                btnPeriod.setText("Period: " + PERIOD_NAMES[period]);
+                loadSummary(selectedDate);
+            }
+        });
     }
 
     /**
@@ -70,27 +100,78 @@ public class SummaryActivity extends AppCompatActivity {
     }
 
     /**
-     * Updates the UI to reflect the summary for the given day
+     * Drops a summary query still running so its result is not delivered to a destroyed screen
+     */
+    @Override
+    protected void onDestroy() {
+        queries.cancel();
+        super.onDestroy();
+    }
+
+    /**
+     * Updates the UI to reflect the summary for the selected period around the given day
      *
-     * @param date Day to summarize
+     * @param date Day to summarize, or a day inside the week, month, or year to summarize
      */
     private void loadSummary(Date date) {
-        Map<String, Integer> summary = LogManager.getInstance().getSummaryByDate(date);
-
-        if (summary.isEmpty()) {
-            noEntries.setText("No entries made that day :(");
-            noEntries.setVisibility(View.VISIBLE);
-            summaryList.setAdapter(null);
-            return;
+        final int shownPeriod = period;
+        final Date start;
+        final Date end;
+        if (shownPeriod == 0) {
+            start = date;
+            end = date;
+        } else {
+            int field = PERIOD_FIELDS[shownPeriod];
+            Calendar from = Calendar.getInstance();
+            from.setTime(date);
+            if (field == Calendar.WEEK_OF_YEAR) {
+                from.set(Calendar.DAY_OF_WEEK, from.getFirstDayOfWeek());
+            } else if (field == Calendar.MONTH) {
+                from.set(Calendar.DAY_OF_MONTH, 1);
+            } else {
+                from.set(Calendar.DAY_OF_YEAR, 1);
+            }
+            Calendar to = (Calendar) from.clone();
+            to.add(field, 1);
+            to.add(Calendar.DAY_OF_MONTH, -1);
+            start = from.getTime();
+            end = to.getTime();
         }
 
+        // a fresh vector per query: the adapter reads the previous one on the main thread meanwhile.
+        // Sized for every possible ordinal, since a running restore can add emojis mid-query
+        queries.submit(manager -> {
+            int[] counts = new int[LogColumns.MAX_EMOJIS];
+            if (shownPeriod == 0) {
+                manager.getCountsByDate(start, counts);
+            } else {
+                manager.getCountsByRange(start, end, counts);
+            }
+            return counts;
+        }, counts -> showSummary(counts, shownPeriod),
+                error -> Toast.makeText(this, "Could not load the summary", Toast.LENGTH_SHORT).show());
+    }
+
+    /**
+     * Shows a finished count query, or the empty-state text when it found nothing
+     *
+     * @param counts Logs per emoji ordinal
+     * @param shownPeriod Index into PERIOD_NAMES of the span the counts cover
+     */
+    private void showSummary(int[] counts, int shownPeriod) {
         int total = 0;
-        for (int count : summary.values()) {
+        for (int count : counts) {
             total += count;
         }
 
-        SummaryAdapter adapter = new SummaryAdapter(this, summary, total);
-        summaryList.setAdapter(adapter);
-        noEntries.setVisibility(View.GONE);
+        adapter.update(counts, total, summaryList);
+        if (total == 0) {
+            noEntries.setText(shownPeriod == 0
+                    ? "No entries made that day :("
+                    : "No entries made that " + PERIOD_NAMES[shownPeriod].toLowerCase(Locale.ROOT) + " :(");
+            noEntries.setVisibility(View.VISIBLE);
+        } else {
+            noEntries.setVisibility(View.GONE);
+        }
     }
 }
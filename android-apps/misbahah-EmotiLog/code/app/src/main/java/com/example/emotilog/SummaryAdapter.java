@@ -4,43 +4,88 @@ import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.AdapterView;
+import android.widget.BaseAdapter;
 import android.widget.TextView;
 
-import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-
 /**
- * Binds emoji-to-count summary entries to the summary row layout
+ * Binds emoji counts to the summary row layout, most frequent emoji first
  *
- * Longer context: Receives daily frequency data from SummaryActivity and renders each emoji with
- * its count and percentage. It has no knowledge of how the data is collected
+ * Longer context: SummaryActivity keeps one adapter for its lifetime and hands it a new count
+ * vector (counts indexed by LogManager emoji ordinal) whenever the date or period changes.
+ * SummaryRows keeps the rows sorted by count and formats each row's "count (percent)" text when its
+ * count or rounded percentage changes, not on every bind. If the rows on screen keep their order,
+ * update() rebinds only the visible rows whose text changed, otherwise it notifies the ListView
+ * once. It has no knowledge of how the counts are collected
  *
- * Assumptions: Caller guarantees total > 0 when constructing the adapter
+ * Assumptions: Called on the main thread
  *
- * Limitations: Uses List.copyOf, which depends on newer Java APIs; should fall back to ArrayList for SDK 24
+ * Limitations: None beyond those of SummaryRows
  */
-public class SummaryAdapter extends ArrayAdapter<Map.Entry<String, Integer>> {
+public class SummaryAdapter extends BaseAdapter {
     private final LayoutInflater inflater; // Inflater used to create summary row views
-    private final int total; // Total log count for the selected day
+    private final SummaryRows rows = new SummaryRows(ordinal -> LogManager.getInstance().getEmoji(ordinal)); // rows shown, sorted by count, and what the last update changed
 
     /**
-     * Constructs the summary adapter by copying the summary map entries so the adapter holds a
-     * stable snapshot
+     * Holds a row view's TextViews so binding skips findViewById
+     */
+    private static final class ViewHolder {
+        TextView emojiView; // shows the emoji
+        TextView countView; // shows "count (percent%)"
+    }
+
+    /**
+     * Creates an empty adapter; call update() to fill it
      *
      * @param context Hosting context (SummaryActivity)
-     * @param summary Map of emoji text to daily counts
-     * @param total Sum of all counts for the day; assumed positive
      */
-    public SummaryAdapter(Context context, Map<String, Integer> summary, int total) {
-        super(context, 0, List.copyOf(summary.entrySet())); // turn map into list
+    public SummaryAdapter(Context context) {
         this.inflater = LayoutInflater.from(context);
-        this.total = total;
     }
 
     /**
-     * Populates a summary row with the emoji, count, and rounded percentage
+     * Replaces the shown counts, rebinding only what changed
+     *
+     * @param counts Logs per LogManager emoji ordinal, e.g. from getCountsByDate
+     * @param total Sum of counts
+     * @param listView List this adapter is attached to, used to rebind visible rows in place
+     */
+    public void update(int[] counts, int total, AdapterView<?> listView) {
+        if (!rows.update(counts, total)) {
+            notifyDataSetChanged();
+            return;
+        }
+        int first = listView.getFirstVisiblePosition();
+        for (int i = 0; i < listView.getChildCount(); i++) {
+            int position = first + i;
+            if (position < rows.size() && rows.get(position).changed) {
+                getView(position, listView.getChildAt(i), listView);
+            }
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return rows.size();
+    }
+
+    @Override
+    public String getItem(int position) {
+        return rows.get(position).emoji;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return rows.get(position).ordinal;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    /**
+     * Populates a summary row with the emoji and its preformatted count and rounded percentage
      *
      * @param position Zero-based row index
      * @param convertView Recycled view if available
@@ -49,21 +94,21 @@ public class SummaryAdapter extends ArrayAdapter<Map.Entry<String, Integer>> {
      */
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
-        Map.Entry<String, Integer> entry = getItem(position);
+        SummaryRows.Row row = rows.get(position);
 
+        ViewHolder holder;
         if (convertView == null) {
             convertView = inflater.inflate(R.layout.item_summary, parent, false);
+            holder = new ViewHolder();
+            holder.emojiView = convertView.findViewById(R.id.textEmojiSummary);
+            holder.countView = convertView.findViewById(R.id.textCountSummary);
+            convertView.setTag(holder);
+        } else {
+            holder = (ViewHolder) convertView.getTag();
         }
 
-        TextView emojiView = convertView.findViewById(R.id.textEmojiSummary);
-        TextView countView = convertView.findViewById(R.id.textCountSummary);
-
-        String emoji = entry.getKey();
-        int count = entry.getValue();
-        double percent = (count * 100.0) / total;
-
-        emojiView.setText(emoji);
-        countView.setText(String.format(Locale.getDefault(), "%d (%.0f%%)", count, percent));
+        holder.emojiView.setText(row.emoji);
+        holder.countView.setText(row.text);
 
         return convertView;
     }
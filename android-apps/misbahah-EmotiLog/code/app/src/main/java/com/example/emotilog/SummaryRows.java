@@ -0,0 +1,126 @@
+package com.example.emotilog;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntFunction;
+
+/**
+ * The rows a summary shows for a count vector, most frequent emoji first, and what changed since
+ * the previous vector
+ *
+ * Longer context: SummaryAdapter hands every new count vector (counts indexed by LogManager emoji
+ * ordinal) to update(), which keeps the rows sorted by count and formats each row's
+ * "count (percent%)" text only when its count or rounded percentage changes. It reports whether
+ * the same rows are shown in the same order, so the adapter can rebind just the rows marked
+ * changed instead of notifying the whole list. Free of Android types so the diff can be unit
+ * tested on its own
+ *
+ * Assumptions: Used from one thread (the main thread, through SummaryAdapter)
+ *
+ * Limitations: Sorting is an insertion sort, fine for the handful of emojis a summary can hold
+ */
+class SummaryRows {
+    /**
+     * One summary row: an emoji with its count and the preformatted text shown for it
+     */
+    static final class Row {
+        final int ordinal; // LogManager emoji ordinal
+        final String emoji; // emoji shown in the row
+        int count; // logs with this emoji
+        long percent = -1; // rounded percentage the text was formatted with
+        String text; // "count (percent%)", formatted when count or percent changes
+        boolean changed; // text changed in the last update
+
+        Row(int ordinal, String emoji) {
+            this.ordinal = ordinal;
+            this.emoji = emoji;
+        }
+    }
+
+    private final IntFunction<String> emojis; // emoji ordinal -> emoji, asked once per ordinal
+    private Row[] rowsByOrdinal = new Row[LogManager.EMOJIS.size()]; // emoji ordinal -> its row, created on first use
+    private Row[] rows = new Row[LogManager.EMOJIS.size()]; // rows shown, sorted by count; only the first size are used
+    private Row[] previousRows = new Row[LogManager.EMOJIS.size()]; // rows shown before the running update
+    private int size; // number of rows shown (emojis with a nonzero count)
+
+    /**
+     * @param emojis Emoji for an ordinal, e.g. LogManager.getEmoji
+     */
+    SummaryRows(IntFunction<String> emojis) {
+        this.emojis = emojis;
+    }
+
+    /**
+     * Replaces the rows with those for a new count vector
+     * Row objects are reused per emoji ordinal, so switching days allocates only when an emoji
+     * appears for the first time or its text changes
+     *
+     * @param counts Logs per emoji ordinal, e.g. from LogManager.getCountsByDate
+     * @param total Sum of counts
+     * @return true if the same rows are shown in the same order as before, so only the rows marked
+     *         changed need rebinding; false if rows appeared, disappeared, or moved
+     */
+    boolean update(int[] counts, int total) {
+        if (rowsByOrdinal.length < counts.length) {
+            rowsByOrdinal = Arrays.copyOf(rowsByOrdinal, counts.length);
+            rows = Arrays.copyOf(rows, counts.length);
+            previousRows = new Row[counts.length];
+        }
+        System.arraycopy(rows, 0, previousRows, 0, size);
+        int previousSize = size;
+
+        size = 0;
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            if (counts[ordinal] <= 0) {
+                continue;
+            }
+            Row row = rowsByOrdinal[ordinal];
+            if (row == null) {
+                row = new Row(ordinal, emojis.apply(ordinal));
+                rowsByOrdinal[ordinal] = row;
+            }
+            int count = counts[ordinal];
+            long percent = Math.round(count * 100.0 / total);
+            row.changed = count != row.count || percent != row.percent;
+            if (row.changed) {
+                row.count = count;
+                row.percent = percent;
+                row.text = String.format(Locale.getDefault(), "%d (%d%%)", count, percent);
+            }
+            insertSorted(row);
+        }
+
+        boolean sameOrder = previousSize == size;
+        for (int i = 0; sameOrder && i < size; i++) {
+            sameOrder = previousRows[i] == rows[i];
+        }
+        return sameOrder;
+    }
+
+    /**
+     * Number of rows shown (emojis with a nonzero count)
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param position Zero-based row index, below size()
+     */
+    Row get(int position) {
+        return rows[position];
+    }
+
+    /**
+     * Inserts a row among rows[0..size) keeping them sorted by count (highest first), then ordinal
+     */
+    private void insertSorted(Row row) {
+        int i = size++;
+        while (i > 0 && (rows[i - 1].count < row.count
+                || (rows[i - 1].count == row.count && rows[i - 1].ordinal > row.ordinal))) {
+            rows[i] = rows[i - 1];
+            i--;
+        }
+        rows[i] = row;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.emotilog;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe timestamp formatter that renders each wall-clock minute once and reuses the string
+ *
+ * Longer context: EventListAdapter formats a timestamp on every row bind. SimpleDateFormat is slow,
+ * allocates a Calendar and buffers on each call, and cannot be shared across threads. This class
+ * formats with an immutable java.time DateTimeFormatter and caches the rendered text per minute in
+ * a small direct-mapped table, so binding rows from the same minutes (the usual case for a day's
+ * logs) is a table lookup with no allocation. Entries are immutable and swapped in atomically, so
+ * one instance can be shared by every adapter and background thread
+ *
+ * Assumptions: The pattern shows nothing finer than minutes; the zone's offset is a whole number of
+ * minutes (true for every zone since the 1970s)
+ *
+ * Limitations:
+ * - Minutes that map to the same table slot evict each other, so a list jumping between many
+ *   distant minutes formats more often
+ * - The locale and zone are fixed at construction; callers check isFor and create a new instance
+ *   when the device settings change
+ */
+public class TimestampFormatter {
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+    private static final int CACHE_SIZE = 256; // cached minutes; a power of two so the slot is a mask
+    private static final int CACHE_MASK = CACHE_SIZE - 1;
+
+    private final String pattern; // pattern the formatter was built from
+    private final Locale locale; // locale the formatter was built for
+    private final ZoneId zone; // zone the formatter renders in
+    private final DateTimeFormatter formatter; // immutable and thread-safe, unlike SimpleDateFormat
+    private final AtomicReferenceArray<Minute> cache = new AtomicReferenceArray<>(CACHE_SIZE); // slot -> last minute rendered there
+
+    /**
+     * One rendered minute; immutable so it can be read without locking
+     */
+    private static final class Minute {
+        final long minute; // minutes since the epoch
+        final String text; // the minute rendered with the pattern
+
+        Minute(long minute, String text) {
+            this.minute = minute;
+            this.text = text;
+        }
+    }
+
+    /**
+     * @param pattern DateTimeFormatter pattern with at most minute resolution, e.g. "yyyy-MM-dd HH:mm"
+     * @param locale Locale for month and day names
+     * @param zone Zone in which timestamps are shown
+     */
+    public TimestampFormatter(String pattern, Locale locale, ZoneId zone) {
+        this.pattern = pattern;
+        this.locale = locale;
+        this.zone = zone;
+        this.formatter = DateTimeFormatter.ofPattern(pattern, locale).withZone(zone);
+    }
+
+    /**
+     * Whether this formatter renders with the given pattern, locale, and zone, i.e. can be reused
+     * for them instead of building a new one
+     */
+    public boolean isFor(String pattern, Locale locale, ZoneId zone) {
+        return this.pattern.equals(pattern) && this.locale.equals(locale) && this.zone.equals(zone);
+    }
+
+    /**
+     * Renders a timestamp; allocation-free when its minute is cached
+     *
+     * @param epochMillis Milliseconds since the epoch, e.g. Date.getTime()
+     */
+    public String format(long epochMillis) {
+        long minute = Math.floorDiv(epochMillis, MILLIS_PER_MINUTE);
+        int slot = (int) minute & CACHE_MASK;
+        Minute cached = cache.get(slot);
+        if (cached != null && cached.minute == minute) {
+            return cached.text;
+        }
+        String text = formatter.format(Instant.ofEpochMilli(minute * MILLIS_PER_MINUTE));
+        cache.set(slot, new Minute(minute, text));
+        return text;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.emotilog;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for LogColumns: appending and finding rows, tombstones, chunk growth, and the
+ * emoji dictionary
+ */
+public class LogColumnsTest {
+    private final LogColumns columns = new LogColumns(LogManager.EMOJIS);
+
+    @Test
+    public void appendsRowsAndFindsThemById() {
+        assertEquals(0, columns.append(10, 1000, 0));
+        assertEquals(1, columns.append(20, 2000, 4));
+        assertEquals(2, columns.append(30, 3000, 8));
+
+        assertEquals(1, columns.find(20));
+        assertEquals(20, columns.id(1));
+        assertEquals(2000, columns.millis(1));
+        assertEquals(4, columns.emojiOrdinal(1));
+        assertEquals(0, columns.find(10));
+        assertEquals(2, columns.find(30));
+        assertEquals(-1, columns.find(5));
+        assertEquals(-1, columns.find(25));
+        assertEquals(-1, columns.find(40));
+        assertEquals(3, columns.rows());
+        assertEquals(3, columns.liveRows());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIdsThatAreNotAscending() {
+        columns.append(10, 1000, 0);
+        columns.append(10, 2000, 0);
+    }
+
+    @Test
+    public void deleteLeavesTombstoneThatFindSkips() {
+        columns.append(10, 1000, 0);
+        columns.append(20, 2000, 1);
+        columns.append(30, 3000, 2);
+
+        columns.delete(columns.find(20));
+        assertTrue(columns.isDeleted(1));
+        assertFalse(columns.isDeleted(0));
+        assertEquals(-1, columns.find(20));
+        assertEquals(2, columns.find(30));
+        // the row keeps its index and id, so later rows do not move
+        assertEquals(20, columns.id(1));
+        assertEquals(3, columns.rows());
+        assertEquals(2, columns.liveRows());
+
+        columns.delete(1); // deleting a tombstone again changes nothing
+        assertEquals(2, columns.liveRows());
+        assertEquals(3, columns.append(40, 4000, 3));
+        assertEquals(3, columns.liveRows());
+    }
+
+    @Test
+    public void growsAcrossChunkBoundaries() {
+        int rows = 2500; // more than two chunks of 1024 rows
+        for (int row = 0; row < rows; row++) {
+            assertEquals(row, columns.append(row * 2L, row * 1000L, row % LogManager.EMOJIS.size()));
+        }
+        columns.delete(1024); // first row of the second chunk
+
+        for (int row = 0; row < rows; row++) {
+            assertEquals(row * 2L, columns.id(row));
+            assertEquals(row * 1000L, columns.millis(row));
+            if (row != 1024) {
+                assertEquals(row % LogManager.EMOJIS.size(), columns.emojiOrdinal(row));
+                assertEquals(row, columns.find(row * 2L));
+            }
+            assertEquals(-1, columns.find(row * 2L + 1));
+        }
+        assertEquals(-1, columns.find(2048));
+        assertEquals(rows, columns.rows());
+        assertEquals(rows - 1, columns.liveRows());
+    }
+
+    @Test
+    public void emojisOutsideTheFixedNineGetNewOrdinals() {
+        for (int ordinal = 0; ordinal < LogManager.EMOJIS.size(); ordinal++) {
+            assertEquals(ordinal, columns.ordinal(LogManager.EMOJIS.get(ordinal)));
+        }
+        assertEquals(9, columns.emojiCount());
+
+        assertEquals(9, columns.ordinal("🙂"));
+        assertEquals(9, columns.ordinal("🙂"));
+        assertEquals("🙂", columns.emoji(9));
+        assertEquals(10, columns.emojiCount());
+
+        // the largest ordinal still reads back as itself, not as a negative byte or a tombstone
+        int last = LogColumns.MAX_EMOJIS - 1;
+        for (int i = columns.emojiCount(); i <= last; i++) {
+            assertEquals(i, columns.ordinal("emoji " + i));
+        }
+        int row = columns.append(1, 1000, last);
+        assertEquals(last, columns.emojiOrdinal(row));
+        assertFalse(columns.isDeleted(row));
+        assertEquals("emoji " + last, columns.emoji(last));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmojiPastTheDictionaryLimit() {
+        for (int i = columns.emojiCount(); i < LogColumns.MAX_EMOJIS; i++) {
+            columns.ordinal("emoji " + i);
+        }
+        columns.ordinal("one too many");
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.emotilog;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for LogJournal: replay, crash recovery, and the background group commit
+ */
+public class LogJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Replay callback that writes every operation down as a short string
+     */
+    static class Recorder implements LogJournal.Replay {
+        final List<String> operations = new ArrayList<>();
+
+        @Override
+        public void onAdd(long id, long timestampMillis, String emoji) {
+            operations.add("add " + id + " " + timestampMillis + " " + emoji);
+        }
+
+        @Override
+        public void onEdit(long id, String emoji) {
+            operations.add("edit " + id + " " + emoji);
+        }
+
+        @Override
+        public void onDelete(long id) {
+            operations.add("delete " + id);
+        }
+    }
+
+    private List<String> replay(File file) throws IOException {
+        Recorder recorder = new Recorder();
+        LogJournal.open(file, recorder).close();
+        return recorder.operations;
+    }
+
+    private LogJournal writeThree(File file) throws IOException {
+        LogJournal journal = LogJournal.open(file, new Recorder());
+        journal.appendAdd(1, 1000, "😊");
+        journal.appendEdit(1, "😢");
+        journal.appendDelete(1);
+        return journal;
+    }
+
+    @Test
+    public void replaysOperationsInOrderAfterReopen() throws IOException {
+        File file = new File(folder.getRoot(), "journal.log");
+        writeThree(file).close();
+
+        assertEquals(Arrays.asList("add 1 1000 😊", "edit 1 😢", "delete 1"), replay(file));
+    }
+
+    @Test
+    public void truncatesTornTailAndAppendsAfterLastGoodRecord() throws IOException {
+        File file = new File(folder.getRoot(), "journal.log");
+        writeThree(file).close();
+        long goodLength = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // a crash mid-write: a length prefix promising more bytes than made it to disk
+            raf.seek(goodLength);
+            raf.writeInt(40);
+            raf.write(new byte[]{1, 0, 0});
+        }
+
+        LogJournal journal = LogJournal.open(file, new Recorder());
+        assertEquals(goodLength, file.length());
+        journal.appendAdd(2, 2000, "😡");
+        journal.close();
+
+        assertEquals(Arrays.asList("add 1 1000 😊", "edit 1 😢", "delete 1", "add 2 2000 😡"), replay(file));
+    }
+
+    @Test
+    public void stopsReplayAtRecordWithBadChecksum() throws IOException {
+        File file = new File(folder.getRoot(), "journal.log");
+        writeThree(file).close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // the delete record is the last 4 + 9 + 4 bytes; flip a bit of its id
+            raf.seek(file.length() - 5);
+            raf.write(raf.read() ^ 1);
+        }
+
+        assertEquals(Arrays.asList("add 1 1000 😊", "edit 1 😢"), replay(file));
+    }
+
+    @Test
+    public void ignoresFileWithoutJournalHeader() throws IOException {
+        File file = new File(folder.getRoot(), "journal.log");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeInt(0x12345678);
+        }
+
+        assertEquals(new ArrayList<String>(), replay(file));
+    }
+
+    @Test
+    public void flushMakesAppendsDurableBeforeClose() throws IOException {
+        File file = new File(folder.getRoot(), "journal.log");
+        LogJournal journal = writeThree(file);
+        journal.flush();
+
+        // replaying the file while the journal is still open sees everything flushed
+        Recorder recorder = new Recorder();
+        LogJournal.replay(file, recorder);
+        assertEquals(3, recorder.operations.size());
+        journal.close();
+    }
+
+    @Test
+    public void commitsInBackgroundWithoutFlush() throws Exception {
+        File file = new File(folder.getRoot(), "journal.log");
+        LogJournal journal = writeThree(file);
+        long emptyLength = 4;
+
+        long deadline = System.currentTimeMillis() + 20 * LogJournal.COMMIT_INTERVAL_MS;
+        while (file.length() == emptyLength && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Recorder recorder = new Recorder();
+        LogJournal.replay(file, recorder);
+        assertEquals(3, recorder.operations.size());
+        journal.close();
+    }
+
+    @Test
+    public void commitInBackgroundReturnsAtOnceAndLandsWithoutFlush() throws Exception {
+        File file = new File(folder.getRoot(), "journal.log");
+        LogJournal journal = writeThree(file);
+        journal.commitInBackground();
+
+        Recorder recorder = new Recorder();
+        long deadline = System.currentTimeMillis() + 20 * LogJournal.COMMIT_INTERVAL_MS;
+        while (recorder.operations.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            recorder = new Recorder();
+            LogJournal.replay(file, recorder);
+        }
+        assertEquals(3, recorder.operations.size());
+        journal.close();
+        journal.commitInBackground(); // a no-op once closed
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsAppendAfterClose() throws IOException {
+        LogJournal journal = LogJournal.open(new File(folder.getRoot(), "journal.log"), new Recorder());
+        journal.close();
+        journal.appendDelete(1);
+    }
+}
@@ -0,0 +1,644 @@
+package com.example.emotilog;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for LogManager: the local-day index, paging, restoring history from storage,
+ * recovering from crashes, and concurrent use with background compaction
+ */
+public class LogManagerTest {
+    private static final Date DAY = new GregorianCalendar(2024, Calendar.JANUARY, 15, 12, 0).getTime();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final TimeZone defaultZone = TimeZone.getDefault(); // restored after tests that change it
+
+    @After
+    public void restoreDefaultZone() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    /**
+     * Creates an empty store whose days follow the given zone; LogManager reads the default zone
+     * when it is created
+     */
+    private static LogManager inZone(String zoneId) {
+        TimeZone.setDefault(TimeZone.getTimeZone(zoneId));
+        return new LogManager();
+    }
+
+    /**
+     * A wall-clock time in the default zone
+     */
+    private static Date local(int year, int month, int day, int hour, int minute) {
+        return new GregorianCalendar(year, month, day, hour, minute).getTime();
+    }
+
+    private static Date at(int minutes) {
+        return new Date(DAY.getTime() + minutes * 60_000L);
+    }
+
+    private static List<String> emojis(List<LogEntry> logs) {
+        List<String> emojis = new ArrayList<>();
+        for (LogEntry log : logs) {
+            emojis.add(log.getId() + " " + log.getEmoji());
+        }
+        return emojis;
+    }
+
+    /**
+     * The day's summary counted again from its logs
+     */
+    private static Map<String, Integer> recount(LogManager manager, Date day) {
+        Map<String, Integer> summary = new HashMap<>();
+        for (LogEntry log : manager.getLogsByDate(day)) {
+            summary.merge(log.getEmoji(), 1, Integer::sum);
+        }
+        return summary;
+    }
+
+    /**
+     * Noon on the given number of days after DAY, in the default zone
+     */
+    private static Date day(int days) {
+        Calendar calendar = new GregorianCalendar();
+        calendar.setTime(DAY);
+        calendar.add(Calendar.DAY_OF_MONTH, days);
+        return calendar.getTime();
+    }
+
+    /**
+     * Checks getSummaryRange for every range within the first days days against the day summaries
+     * added up
+     */
+    private static void assertRangesMatchDays(LogManager manager, int days) {
+        for (int first = 0; first < days; first++) {
+            Map<String, Integer> expected = new HashMap<>();
+            for (int last = first; last < days; last++) {
+                for (Map.Entry<String, Integer> count : manager.getSummaryByDate(day(last)).entrySet()) {
+                    expected.merge(count.getKey(), count.getValue(), Integer::sum);
+                }
+                assertEquals(first + ".." + last, expected, manager.getSummaryRange(day(first), day(last)));
+            }
+        }
+    }
+
+    private static LogManager opened(File directory) throws IOException {
+        LogManager manager = new LogManager();
+        manager.openStorage(directory);
+        return manager;
+    }
+
+    @Test
+    public void splitsDaysAtLocalMidnight() {
+        LogManager manager = inZone("America/Toronto");
+        Date lastMillisecond = new Date(local(2024, Calendar.JANUARY, 15, 0, 0).getTime() - 1);
+        manager.addLog("😊", lastMillisecond);
+        manager.addLog("😢", local(2024, Calendar.JANUARY, 15, 0, 0));
+        manager.addLog("😡", local(2024, Calendar.JANUARY, 15, 23, 59));
+        manager.addLog("😴", local(2024, Calendar.JANUARY, 16, 0, 0));
+
+        assertEquals(Arrays.asList("0 😊"), emojis(manager.getLogsByDate(lastMillisecond)));
+        // any time of the day finds the same logs, from its first minute to its last
+        List<String> fifteenth = Arrays.asList("1 😢", "2 😡");
+        assertEquals(fifteenth, emojis(manager.getLogsByDate(local(2024, Calendar.JANUARY, 15, 0, 0))));
+        assertEquals(fifteenth, emojis(manager.getLogsByDate(local(2024, Calendar.JANUARY, 15, 23, 59))));
+        assertEquals(Arrays.asList("3 😴"), emojis(manager.getLogsByDate(local(2024, Calendar.JANUARY, 16, 12, 0))));
+        // UTC midnight is 19:00 in Toronto and splits nothing
+        assertEquals(fifteenth, emojis(manager.getLogsByDate(local(2024, Calendar.JANUARY, 15, 19, 30))));
+    }
+
+    @Test
+    public void keepsDaylightSavingDaysWhole() {
+        LogManager manager = inZone("America/Toronto");
+        // 2024-03-10 has 23 hours (02:00 does not exist), 2024-11-03 has 25 (01:00 to 02:00 twice)
+        manager.addLog("😊", local(2024, Calendar.MARCH, 9, 23, 59));
+        manager.addLog("😢", local(2024, Calendar.MARCH, 10, 0, 0));
+        manager.addLog("😡", local(2024, Calendar.MARCH, 10, 3, 0));
+        manager.addLog("😴", local(2024, Calendar.MARCH, 10, 23, 59));
+        manager.addLog("😱", local(2024, Calendar.MARCH, 11, 0, 0));
+        Date firstOneThirty = local(2024, Calendar.NOVEMBER, 3, 1, 30);
+        manager.addLog("😐", local(2024, Calendar.NOVEMBER, 3, 0, 0));
+        manager.addLog("😍", firstOneThirty);
+        manager.addLog("😭", new Date(firstOneThirty.getTime() + 60 * 60_000L)); // 01:30 again, after the clocks go back
+        manager.addLog("🤩", local(2024, Calendar.NOVEMBER, 3, 23, 59));
+        manager.addLog("😊", local(2024, Calendar.NOVEMBER, 4, 0, 0));
+
+        assertEquals(Arrays.asList("0 😊"), emojis(manager.getLogsByDate(local(2024, Calendar.MARCH, 9, 12, 0))));
+        assertEquals(Arrays.asList("1 😢", "2 😡", "3 😴"),
+                emojis(manager.getLogsByDate(local(2024, Calendar.MARCH, 10, 12, 0))));
+        assertEquals(Arrays.asList("4 😱"), emojis(manager.getLogsByDate(local(2024, Calendar.MARCH, 11, 12, 0))));
+        assertEquals(Arrays.asList("5 😐", "6 😍", "7 😭", "8 🤩"),
+                emojis(manager.getLogsByDate(local(2024, Calendar.NOVEMBER, 3, 23, 0))));
+        assertEquals(Arrays.asList("9 😊"), emojis(manager.getLogsByDate(local(2024, Calendar.NOVEMBER, 4, 0, 30))));
+        assertEquals(4, manager.getSummaryByDate(local(2024, Calendar.NOVEMBER, 3, 12, 0)).size());
+    }
+
+    @Test
+    public void daySummariesMatchRecountAfterEditsAndDeletes() {
+        LogManager manager = new LogManager();
+        Date[] days = {at(-24 * 60), DAY, at(24 * 60)};
+        List<String> emojis = new ArrayList<>(LogManager.EMOJIS);
+        emojis.add("🙂"); // not offered on the home screen; gets the next ordinal
+        Random random = new Random(10);
+        int[] counts = new int[16];
+
+        for (int step = 0; step < 600; step++) {
+            Date day = days[random.nextInt(days.length)];
+            List<LogEntry> logs = manager.getLogsByDate(day);
+            int action = random.nextInt(4);
+            if (action == 0 && !logs.isEmpty()) {
+                manager.updateEmoji(logs.get(random.nextInt(logs.size())), emojis.get(random.nextInt(emojis.size())));
+            } else if (action == 1 && !logs.isEmpty()) {
+                assertTrue(manager.removeLog(logs.get(random.nextInt(logs.size()))));
+            } else {
+                manager.addLog(emojis.get(random.nextInt(emojis.size())), new Date(day.getTime() + random.nextInt(60) * 60_000L));
+            }
+            for (Date each : days) {
+                assertEquals(recount(manager, each), manager.getSummaryByDate(each));
+                assertEquals(manager.getLogsByDate(each).size(), manager.getCountsByDate(each, counts));
+            }
+        }
+        // an edit to the same emoji and removing an entry twice leave the counts alone
+        List<LogEntry> logs = manager.getLogsByDate(DAY);
+        LogEntry first = logs.get(0);
+        manager.updateEmoji(first, first.getEmoji());
+        assertTrue(manager.removeLog(logs.get(1)));
+        assertFalse(manager.removeLog(logs.get(1)));
+        assertEquals(recount(manager, DAY), manager.getSummaryByDate(DAY));
+    }
+
+    @Test
+    public void daySummaryIsEmptyOnceItsLastLogIsRemoved() {
+        LogManager manager = new LogManager();
+        manager.addLog("😊", at(1));
+        manager.addLog("😊", at(2));
+        manager.updateEmoji(manager.getLogsByDate(DAY).get(1), "😢");
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("😊", 1);
+        expected.put("😢", 1);
+        assertEquals(expected, manager.getSummaryByDate(DAY));
+
+        for (LogEntry log : manager.getLogsByDate(DAY)) {
+            manager.removeLog(log);
+        }
+        assertTrue(manager.getSummaryByDate(DAY).isEmpty());
+        assertEquals(0, manager.getCountsByDate(DAY, new int[16]));
+    }
+
+    @Test
+    public void rangeSummariesMatchDaySummariesThroughEveryKindOfChange() {
+        LogManager manager = new LogManager();
+        manager.setMetricsEnabled(true);
+        int days = 12;
+        for (int d = 2; d < 6; d++) {
+            manager.addLog(LogManager.EMOJIS.get(d), day(d));
+        }
+        assertRangesMatchDays(manager, days); // the first range query builds the prefix sums
+        assertEquals(1, manager.getMetrics().getPrefixSumRebuilds());
+
+        // a log on a day they already cover, and logs on new days after the last one, are applied in place
+        manager.addLog("😊", day(3));
+        manager.addLog("😢", day(7));
+        manager.addLog("😡", day(7));
+        manager.addLog("😴", day(9));
+        assertRangesMatchDays(manager, days);
+        manager.updateEmoji(manager.getLogsByDate(day(3)).get(0), "😭");
+        manager.updateEmoji(manager.getLogsByDate(day(7)).get(1), "😢");
+        assertRangesMatchDays(manager, days);
+        manager.removeLog(manager.getLogsByDate(day(7)).get(0));
+        manager.removeLog(manager.getLogsByDate(day(2)).get(0)); // the day's only log
+        assertRangesMatchDays(manager, days);
+        manager.addLog("😍", day(2)); // a day they cover with zero counts
+        assertRangesMatchDays(manager, days);
+        assertEquals(1, manager.getMetrics().getPrefixSumRebuilds());
+
+        // a log on a day before the last covered one, but not covered itself, drops them
+        manager.addLog("😐", day(6));
+        assertRangesMatchDays(manager, days);
+        assertEquals(2, manager.getMetrics().getPrefixSumRebuilds());
+        manager.addLog("😐", day(0)); // before the first covered day
+        assertRangesMatchDays(manager, days);
+        assertEquals(3, manager.getMetrics().getPrefixSumRebuilds());
+
+        // so does an emoji they have no column for, logged or edited in
+        manager.addLog("🙂", day(4));
+        assertRangesMatchDays(manager, days);
+        assertEquals(4, manager.getMetrics().getPrefixSumRebuilds());
+        manager.updateEmoji(manager.getLogsByDate(day(5)).get(0), "🙃");
+        assertRangesMatchDays(manager, days);
+        assertEquals(5, manager.getMetrics().getPrefixSumRebuilds());
+        manager.removeLog(manager.getLogsByDate(day(4)).get(1));
+        assertRangesMatchDays(manager, days);
+        assertEquals(5, manager.getMetrics().getPrefixSumRebuilds());
+    }
+
+    @Test
+    public void rangeSummariesMatchDaySummariesForRandomHistories() {
+        LogManager manager = new LogManager();
+        Random random = new Random(14);
+        int days = 40;
+        List<String> emojis = new ArrayList<>(LogManager.EMOJIS);
+        emojis.add("🙂");
+        for (int step = 0; step < 400; step++) {
+            // mostly forward in time, like a real history, with some backdated logs
+            int d = random.nextInt(10) == 0 ? random.nextInt(days) : Math.min(days - 1, step / 10);
+            List<LogEntry> logs = manager.getLogsByDate(day(d));
+            int action = random.nextInt(5);
+            if (action == 0 && !logs.isEmpty()) {
+                manager.updateEmoji(logs.get(random.nextInt(logs.size())), emojis.get(random.nextInt(emojis.size())));
+            } else if (action == 1 && !logs.isEmpty()) {
+                manager.removeLog(logs.get(random.nextInt(logs.size())));
+            } else {
+                manager.addLog(emojis.get(random.nextInt(emojis.size() - (step < 300 ? 1 : 0))), day(d));
+            }
+            if (step % 20 == 0) {
+                assertRangesMatchDays(manager, days);
+            } else {
+                // keep the prefix sums built so later changes update them in place
+                manager.getSummaryRange(day(0), day(days - 1));
+            }
+        }
+        assertRangesMatchDays(manager, days);
+    }
+
+    @Test
+    public void rangeSummaryOfEmptyStoreOrRangeIsEmpty() {
+        LogManager manager = new LogManager();
+        assertTrue(manager.getSummaryRange(day(0), day(30)).isEmpty());
+        manager.addLog("😊", day(5));
+        assertTrue(manager.getSummaryRange(day(0), day(4)).isEmpty());
+        assertTrue(manager.getSummaryRange(day(6), day(30)).isEmpty());
+        assertEquals(1, manager.getCountsByRange(day(5), day(5), new int[16]));
+        // start and end only count by their day, so a start later in the day than the end is fine
+        Date lateOnFifth = new Date(day(5).getTime() + 11 * 60 * 60_000L);
+        Date earlyOnFifth = new Date(day(5).getTime() - 11 * 60 * 60_000L);
+        assertEquals(1, manager.getCountsByRange(lateOnFifth, earlyOnFifth, new int[16]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeThatEndsBeforeItStartsIsRejected() {
+        LogManager manager = new LogManager();
+        manager.addLog("😊", day(1));
+        manager.getSummaryRange(day(1), day(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeCountsNeedASlotPerEmoji() {
+        LogManager manager = new LogManager();
+        manager.addLog("🙂", day(1));
+        manager.getCountsByRange(day(0), day(1), new int[LogManager.EMOJIS.size()]);
+    }
+
+    @Test
+    public void pagesAddUpToTheWholeDay() {
+        LogManager manager = new LogManager();
+        for (int i = 0; i < 23; i++) {
+            manager.addLog(LogManager.EMOJIS.get(i % LogManager.EMOJIS.size()), at(i));
+        }
+        manager.addLog("😊", day(1)); // another day's log is never paged in
+
+        List<String> paged = new ArrayList<>();
+        for (int offset = 0; ; offset += 5) {
+            List<LogEntry> page = manager.getLogsByDate(DAY, offset, 5);
+            paged.addAll(emojis(page));
+            if (page.size() < 5) {
+                assertEquals(3, page.size());
+                break;
+            }
+        }
+        assertEquals(emojis(manager.getLogsByDate(DAY)), paged);
+        assertEquals(23, paged.size());
+    }
+
+    @Test
+    public void pagesPastTheEndOrWithoutRoomAreEmpty() {
+        LogManager manager = new LogManager();
+        for (int i = 0; i < 10; i++) {
+            manager.addLog("😊", at(i));
+        }
+
+        assertTrue(manager.getLogsByDate(DAY, 10, 5).isEmpty());
+        assertTrue(manager.getLogsByDate(DAY, 11, 5).isEmpty());
+        assertTrue(manager.getLogsByDate(DAY, Integer.MAX_VALUE, Integer.MAX_VALUE).isEmpty());
+        assertTrue(manager.getLogsByDate(DAY, 0, 0).isEmpty());
+        assertTrue(manager.getLogsByDate(DAY, 5, 0).isEmpty());
+        assertTrue(manager.getLogsByDate(day(1), 0, 5).isEmpty());
+        assertEquals(Arrays.asList("9 😊"), emojis(manager.getLogsByDate(DAY, 9, 5)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePageOffsetIsRejected() {
+        LogManager manager = new LogManager();
+        manager.addLog("😊", at(0));
+        manager.getLogsByDate(DAY, -1, 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePageLimitIsRejected() {
+        LogManager manager = new LogManager();
+        manager.addLog("😊", at(0));
+        manager.getLogsByDate(DAY, 0, -1);
+    }
+
+    @Test
+    public void nextPageStartsAfterTheLoadedLogsOnceOneIsDeleted() {
+        LogManager manager = new LogManager();
+        for (int i = 0; i < 12; i++) {
+            manager.addLog(LogManager.EMOJIS.get(i % LogManager.EMOJIS.size()), at(i));
+        }
+
+        // what EventListActivity does: delete a loaded entry, then ask for the next page at the
+        // number of entries still loaded
+        List<LogEntry> loaded = manager.getLogsByDate(DAY, 0, 5);
+        LogEntry deleted = loaded.get(2);
+        assertTrue(manager.removeLog(deleted));
+        loaded.remove(deleted);
+        while (true) {
+            List<LogEntry> page = manager.getLogsByDate(DAY, loaded.size(), 5);
+            loaded.addAll(page);
+            if (page.size() < 5) {
+                break;
+            }
+        }
+
+        List<String> expected = emojis(manager.getLogsByDate(DAY));
+        assertEquals(11, expected.size());
+        assertFalse(expected.contains(deleted.getId() + " " + deleted.getEmoji()));
+        assertEquals(expected, emojis(loaded));
+    }
+
+    @Test
+    public void restoresAddsEditsAndDeletesAfterReopen() throws IOException {
+        File directory = folder.newFolder("emotilog");
+        LogManager manager = opened(directory);
+        manager.addLog("😊", at(1));
+        manager.addLog("😢", at(2));
+        manager.addLog("😡", at(3));
+        List<LogEntry> logs = manager.getLogsByDate(DAY);
+        manager.updateEmoji(logs.get(0), "😴");
+        manager.removeLog(logs.get(1));
+        manager.flush();
+
+        LogManager restored = opened(directory);
+
+        assertEquals(emojis(manager.getLogsByDate(DAY)), emojis(restored.getLogsByDate(DAY)));
+        assertEquals(manager.getSummaryByDate(DAY), restored.getSummaryByDate(DAY));
+    }
+
+    @Test
+    public void doesNotReuseIdsOfDeletedEntriesAfterRestore() throws IOException {
+        File directory = folder.newFolder("emotilog");
+        LogManager manager = opened(directory);
+        manager.addLog("😊", at(1));
+        manager.addLog("😢", at(2));
+        manager.removeLog(manager.getLogsByDate(DAY).get(1));
+        manager.flush();
+
+        LogManager restored = opened(directory);
+        restored.addLog("😡", at(3));
+
+        List<LogEntry> logs = restored.getLogsByDate(DAY);
+        assertEquals(2, logs.size());
+        assertEquals(2, logs.get(1).getId());
+    }
+
+    @Test
+    public void recoversFlushedLogsWhenJournalTailIsTorn() throws IOException {
+        File directory = folder.newFolder("emotilog");
+        LogManager manager = opened(directory);
+        manager.addLog("😊", at(1));
+        manager.addLog("😢", at(2));
+        manager.flush();
+        // the process dies mid-write: half a record after the flushed ones, and no close
+        File segment = new File(directory, "journal-0.log");
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.seek(raf.length());
+            raf.writeInt(30);
+            raf.writeShort(7);
+        }
+
+        LogManager restored = opened(directory);
+        restored.addLog("😡", at(3));
+        restored.flush();
+
+        assertEquals(3, restored.getLogsByDate(DAY).size());
+        assertEquals(3, opened(directory).getLogsByDate(DAY).size());
+    }
+
+    @Test
+    public void flushInBackgroundSavesChangesWithoutBlocking() throws Exception {
+        new LogManager().flushInBackground(); // a no-op without storage
+
+        File directory = folder.newFolder("emotilog");
+        LogManager manager = opened(directory);
+        manager.addLog("😊", at(1));
+        manager.flushInBackground();
+        File segment = new File(directory, "journal-0.log");
+        long deadline = System.currentTimeMillis() + 20 * LogJournal.COMMIT_INTERVAL_MS;
+        while (segment.length() <= 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        LogJournalTest.Recorder recorder = new LogJournalTest.Recorder();
+        LogJournal.replay(segment, recorder);
+        assertEquals(Arrays.asList("add 0 " + at(1).getTime() + " 😊"), recorder.operations);
+    }
+
+    @Test
+    public void queriesAnswerFromPartialHistoryDuringBackgroundRestore() throws Exception {
+        File directory = folder.newFolder("emotilog");
+        LogManager manager = opened(directory);
+        int stored = 5000;
+        for (int i = 0; i < stored; i++) {
+            manager.addLog(LogManager.EMOJIS.get(i % LogManager.EMOJIS.size()), at(i % 600));
+        }
+        manager.flush();
+
+        final LogManager restored = new LogManager();
+        final CountDownLatch opened = new CountDownLatch(1);
+        final CountDownLatch reloaded = new CountDownLatch(1);
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+        restored.openStorageInBackground(directory, error -> {
+            failure.set(error);
+            opened.countDown();
+        });
+        assertTrue(restored.isRestoring());
+        assertTrue(restored.runWhenRestored(reloaded::countDown));
+
+        // once the first log is in, hold the read lock so the restore cannot apply the next one, and
+        // query from another thread meanwhile; it must answer instead of waiting for the restore
+        while (restored.getLogsByDate(DAY, 0, 1).isEmpty()) {
+            Thread.yield();
+        }
+        final ExecutorService other = Executors.newSingleThreadExecutor();
+        final AtomicBoolean pausedRestore = new AtomicBoolean();
+        final AtomicReference<int[]> partial = new AtomicReference<>();
+        try {
+            restored.forEachLogByDate(DAY, (id, millis, ordinal) -> {
+                if (partial.get() != null) {
+                    return;
+                }
+                pausedRestore.set(restored.isRestoring());
+                try {
+                    partial.set(other.submit(() -> {
+                        int[] counts = new int[LogColumns.MAX_EMOJIS];
+                        return new int[] {restored.getLogsByDate(DAY).size(), restored.getCountsByDate(DAY, counts)};
+                    }).get(5, TimeUnit.SECONDS));
+                } catch (Exception e) {
+                    throw new AssertionError("Query waited for the restore", e);
+                }
+            });
+        } finally {
+            other.shutdown();
+        }
+
+        // a change waits for the whole history, so it never reuses a restored id
+        restored.addLog("😊", at(1));
+        assertTrue(opened.await(5, TimeUnit.SECONDS));
+        assertNull(failure.get());
+        assertTrue(reloaded.await(5, TimeUnit.SECONDS));
+        assertFalse(restored.isRestoring());
+        assertFalse(restored.runWhenRestored(() -> fail("No restore is running")));
+        List<LogEntry> logs = restored.getLogsByDate(DAY);
+        assertEquals(stored + 1, logs.size());
+        assertEquals(stored, logs.get(stored).getId());
+
+        int[] seen = partial.get();
+        assertTrue(seen[0] > 0);
+        assertEquals(seen[0], seen[1]);
+        if (pausedRestore.get()) {
+            assertTrue("Query saw " + seen[0] + " logs", seen[0] < stored);
+        }
+    }
+
+    @Test
+    public void backgroundRestoreReportsFailure() throws Exception {
+        File notADirectory = folder.newFile("emotilog");
+        LogManager manager = new LogManager();
+        final CountDownLatch opened = new CountDownLatch(1);
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+        manager.openStorageInBackground(notADirectory, error -> {
+            failure.set(error);
+            opened.countDown();
+        });
+
+        assertTrue(opened.await(5, TimeUnit.SECONDS));
+        assertNotNull(failure.get());
+        // the store keeps working in memory
+        manager.addLog("😊", at(1));
+        assertEquals(1, manager.getLogsByDate(DAY).size());
+    }
+
+    @Test
+    public void compactsInBackgroundOnceJournalIsLong() throws Exception {
+        File directory = folder.newFolder("emotilog");
+        LogManager manager = opened(directory);
+        for (int i = 0; i < LogStorage.COMPACT_AFTER_RECORDS; i++) {
+            manager.addLog("😊", at(i % 600));
+        }
+        File snapshot = new File(directory, "snapshot.bin");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!snapshot.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(snapshot.exists());
+
+        manager.addLog("😢", at(1));
+        manager.compact(); // waits for a compaction still running, then runs one more
+        manager.flush();
+
+        LogManager restored = opened(directory);
+        assertEquals(LogStorage.COMPACT_AFTER_RECORDS + 1, restored.getLogsByDate(DAY).size());
+        assertEquals(manager.getSummaryByDate(DAY), restored.getSummaryByDate(DAY));
+    }
+
+    @Test
+    public void readersSeeConsistentCountsWhileWritersRun() throws Exception {
+        final LogManager manager = opened(folder.newFolder("emotilog"));
+        final int writers = 3;
+        final int perWriter = 2000;
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Date weekEnd = new Date(DAY.getTime() + 6 * 24 * 60 * 60_000L);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            final int seed = w;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < perWriter; i++) {
+                    Date when = new Date(DAY.getTime() + random.nextInt(7) * 24 * 60 * 60_000L);
+                    manager.addLog(LogManager.EMOJIS.get(random.nextInt(LogManager.EMOJIS.size())), when);
+                    if (i % 10 == 0) {
+                        List<LogEntry> logs = manager.getLogsByDate(when);
+                        manager.updateEmoji(logs.get(random.nextInt(logs.size())), "😴");
+                    }
+                }
+            }));
+        }
+        Thread reader = new Thread(() -> {
+            int[] counts = new int[64];
+            try {
+                while (!done.get()) {
+                    // every count vector must add up to the total read with it
+                    int total = manager.getCountsByRange(DAY, weekEnd, counts);
+                    int sum = 0;
+                    for (int count : counts) {
+                        sum += count;
+                    }
+                    assertEquals(total, sum);
+                    total = manager.getCountsByDate(DAY, counts);
+                    assertTrue(total <= writers * perWriter);
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+
+        reader.start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+        int[] counts = new int[64];
+        assertEquals(writers * perWriter, manager.getCountsByRange(DAY, weekEnd, counts));
+        int byDay = 0;
+        for (int day = 0; day < 7; day++) {
+            byDay += manager.getLogsByDate(new Date(DAY.getTime() + day * 24 * 60 * 60_000L)).size();
+        }
+        assertEquals(writers * perWriter, byDay);
+    }
+}
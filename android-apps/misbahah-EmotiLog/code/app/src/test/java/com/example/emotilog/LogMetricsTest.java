@@ -0,0 +1,151 @@
+package com.example.emotilog;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for LogMetrics and how LogManager records into it: the enable switch, call and
+ * scanned counts, latency histograms, and prefix-sum hits and rebuilds
+ */
+public class LogMetricsTest {
+    private static final Date DAY = new GregorianCalendar(2024, Calendar.JANUARY, 15, 12, 0).getTime();
+    private static final long DAY_MILLIS = 24L * 60 * 60_000L;
+
+    private static Date at(int days, int minutes) {
+        return new Date(DAY.getTime() + days * DAY_MILLIS + minutes * 60_000L);
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static void assertAllZero(LogMetrics.Snapshot metrics) {
+        for (LogMetrics.Operation operation : LogMetrics.Operation.values()) {
+            assertEquals(operation.name(), 0, metrics.getCalls(operation));
+            assertEquals(operation.name(), 0, metrics.getTotalNanos(operation));
+            assertEquals(operation.name(), 0, metrics.getScanned(operation));
+            assertEquals(operation.name(), 0, sum(metrics.getLatencyHistogram(operation)));
+        }
+        assertEquals(0, metrics.getEntryViews());
+        assertEquals(0, metrics.getContainers());
+        assertEquals(0, metrics.getOptimisticReads());
+        assertEquals(0, metrics.getLockedReads());
+        assertEquals(0, metrics.getPrefixSumHits());
+        assertEquals(0, metrics.getPrefixSumRebuilds());
+    }
+
+    @Test
+    public void recordsNothingWhileDisabled() {
+        LogManager manager = new LogManager();
+        assertFalse(manager.isMetricsEnabled());
+
+        manager.addLog("😊", at(0, 0));
+        manager.getLogsByDate(DAY);
+        manager.getCountsByRange(DAY, at(1, 0), new int[16]);
+        assertAllZero(manager.getMetrics());
+    }
+
+    @Test
+    public void enablingStartsFromZeroAndDisablingDiscards() {
+        LogManager manager = new LogManager();
+        manager.addLog("😊", at(0, 0));
+
+        manager.setMetricsEnabled(true);
+        assertTrue(manager.isMetricsEnabled());
+        assertAllZero(manager.getMetrics());
+        manager.addLog("😊", at(0, 1));
+        manager.setMetricsEnabled(true); // already on: keeps what was recorded
+        assertEquals(1, manager.getMetrics().getCalls(LogMetrics.Operation.ADD_LOG));
+
+        manager.setMetricsEnabled(false);
+        assertFalse(manager.isMetricsEnabled());
+        assertAllZero(manager.getMetrics());
+        manager.setMetricsEnabled(true);
+        assertAllZero(manager.getMetrics());
+    }
+
+    @Test
+    public void countsCallsScannedRowsAndPrefixSumUse() {
+        LogManager manager = new LogManager();
+        manager.setMetricsEnabled(true);
+        for (int i = 0; i < 10; i++) {
+            manager.addLog(LogManager.EMOJIS.get(i % 3), at(0, i));
+        }
+        for (int i = 0; i < 3; i++) {
+            manager.addLog("😴", at(1, i));
+        }
+
+        assertEquals(10, manager.getLogsByDate(DAY).size());
+        assertEquals(2, manager.getLogsByDate(DAY, 8, 5).size());
+        final int[] visited = new int[1];
+        manager.forEachLogByDate(DAY, (id, millis, ordinal) -> visited[0]++);
+        assertEquals(10, visited[0]);
+        assertEquals(10, manager.getCountsByDate(DAY, new int[16]));
+        manager.getSummaryByDate(DAY);
+
+        assertEquals(13, manager.getCountsByRange(DAY, at(1, 0), new int[16])); // builds the prefix sums
+        assertEquals(3, manager.getCountsByRange(at(1, 0), at(1, 0), new int[16])); // current
+        int summed = 0;
+        for (int count : manager.getSummaryRange(DAY, at(1, 0)).values()) { // current
+            summed += count;
+        }
+        assertEquals(13, summed);
+        manager.addLog("😊", at(-1, 0)); // a day before the ones they cover: rebuilt on the next range query
+        assertEquals(14, manager.getCountsByRange(at(-1, 0), at(1, 0), new int[16]));
+
+        LogMetrics.Snapshot metrics = manager.getMetrics();
+        assertEquals(14, metrics.getCalls(LogMetrics.Operation.ADD_LOG));
+        assertEquals(2, metrics.getCalls(LogMetrics.Operation.LOGS_BY_DATE));
+        assertEquals(1, metrics.getCalls(LogMetrics.Operation.FOR_EACH_LOG_BY_DATE));
+        assertEquals(1, metrics.getCalls(LogMetrics.Operation.COUNTS_BY_DATE));
+        assertEquals(1, metrics.getCalls(LogMetrics.Operation.SUMMARY_BY_DATE));
+        assertEquals(3, metrics.getCalls(LogMetrics.Operation.COUNTS_BY_RANGE));
+        assertEquals(1, metrics.getCalls(LogMetrics.Operation.SUMMARY_RANGE));
+        assertEquals(0, metrics.getCalls(LogMetrics.Operation.COMPACT));
+        for (LogMetrics.Operation operation : LogMetrics.Operation.values()) {
+            assertEquals(operation.name(), metrics.getCalls(operation), sum(metrics.getLatencyHistogram(operation)));
+        }
+
+        assertEquals(12, metrics.getScanned(LogMetrics.Operation.LOGS_BY_DATE));
+        assertEquals(10, metrics.getScanned(LogMetrics.Operation.FOR_EACH_LOG_BY_DATE));
+        assertEquals(2 + 3, metrics.getScanned(LogMetrics.Operation.COUNTS_BY_RANGE)); // day buckets per rebuild
+        assertEquals(0, metrics.getScanned(LogMetrics.Operation.SUMMARY_RANGE));
+        assertEquals(12, metrics.getEntryViews());
+
+        assertEquals(2, metrics.getPrefixSumHits());
+        assertEquals(2, metrics.getPrefixSumRebuilds());
+        assertEquals(0.5, metrics.getPrefixSumHitRate(), 0);
+        // one thread, so no read raced a writer; rebuilds read under the lock without trying first
+        assertEquals(0, metrics.getLockedReads());
+        assertEquals(2 + 1 + 1 + 2, metrics.getOptimisticReads());
+    }
+
+    @Test
+    public void latencyLandsInItsPowerOfTwoBucket() {
+        LogMetrics metrics = new LogMetrics();
+        metrics.record(LogMetrics.Operation.COMPACT, System.nanoTime() - (1L << 30));
+        LogMetrics.Snapshot before = metrics.snapshot();
+        metrics.record(LogMetrics.Operation.COMPACT, System.nanoTime() + 1_000_000); // a start in the future counts as 0 ns
+
+        long[] histogram = before.getLatencyHistogram(LogMetrics.Operation.COMPACT);
+        assertEquals(LogMetrics.BUCKETS, histogram.length);
+        assertEquals(1, histogram[30]);
+        assertEquals(1, sum(histogram));
+        assertEquals(1L << 31, before.getLatencyPercentileNanos(LogMetrics.Operation.COMPACT, 0.99));
+        assertTrue(before.getTotalNanos(LogMetrics.Operation.COMPACT) >= 1L << 30);
+
+        LogMetrics.Snapshot after = metrics.snapshot();
+        assertEquals(2, after.getCalls(LogMetrics.Operation.COMPACT));
+        assertEquals(1, after.getLatencyHistogram(LogMetrics.Operation.COMPACT)[0]);
+        assertEquals(1, before.getCalls(LogMetrics.Operation.COMPACT)); // snapshots do not change later
+    }
+}
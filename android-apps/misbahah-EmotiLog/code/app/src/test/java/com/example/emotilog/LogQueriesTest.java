@@ -0,0 +1,103 @@
+package com.example.emotilog;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for LogQueries: a superseded or cancelled query never reaches its callback, and
+ * only the latest result does. The background and main threads are queues the test runs by hand
+ */
+public class LogQueriesTest {
+    private final Queue<Runnable> background = new ArrayDeque<>(); // queries waiting to run
+    private final Queue<Runnable> main = new ArrayDeque<>(); // callbacks waiting to run
+    private final LogQueries queries = new LogQueries(background::add, main::add);
+    private final List<String> ran = new ArrayList<>(); // queries that ran, in order
+    private final List<String> delivered = new ArrayList<>(); // results that reached the callback, in order
+
+    private void submit(final String name) {
+        queries.submit(manager -> {
+            ran.add(name);
+            return name;
+        }, delivered::add);
+    }
+
+    private static void runAll(Queue<Runnable> queue) {
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void deliversTheResultOnTheMainThread() {
+        submit("a");
+        assertTrue(ran.isEmpty());
+
+        runAll(background);
+        assertEquals(Arrays.asList("a"), ran);
+        assertTrue("not before the main thread runs it", delivered.isEmpty());
+
+        runAll(main);
+        assertEquals(Arrays.asList("a"), delivered);
+    }
+
+    @Test
+    public void queryStillQueuedWhenSupersededNeverRuns() {
+        submit("a");
+        submit("b");
+        submit("c");
+
+        runAll(background);
+        runAll(main);
+        assertEquals(Arrays.asList("c"), ran);
+        assertEquals(Arrays.asList("c"), delivered);
+    }
+
+    @Test
+    public void resultOfQuerySupersededWhileRunningIsDropped() {
+        submit("a");
+        runAll(background); // a finished and posted its result, which has not been delivered yet
+        submit("b");
+
+        runAll(background);
+        runAll(main);
+        assertEquals(Arrays.asList("a", "b"), ran);
+        assertEquals(Arrays.asList("b"), delivered);
+    }
+
+    @Test
+    public void queryThatSupersedesFromInsideTheQueryIsStillDelivered() {
+        final Executor direct = Runnable::run;
+        final LogQueries chained = new LogQueries(direct, main::add);
+        chained.submit(manager -> "a", result -> {
+            delivered.add(result);
+            chained.submit(manager -> "b", delivered::add);
+        });
+
+        runAll(main);
+        assertEquals(Arrays.asList("a", "b"), delivered);
+    }
+
+    @Test
+    public void cancelDropsQueuedAndFinishedQueries() {
+        submit("a");
+        queries.cancel();
+        runAll(background);
+        assertTrue(ran.isEmpty());
+
+        submit("b");
+        runAll(background);
+        queries.cancel();
+        runAll(main);
+        assertEquals(Arrays.asList("b"), ran);
+        assertTrue(delivered.isEmpty());
+    }
+}
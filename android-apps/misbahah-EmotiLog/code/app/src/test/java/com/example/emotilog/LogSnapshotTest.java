@@ -0,0 +1,69 @@
+package com.example.emotilog;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for LogSnapshot encoding and reading through the memory-mapped file
+ */
+public class LogSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File written() throws IOException {
+        LogColumns columns = new LogColumns(LogManager.EMOJIS);
+        columns.append(3, 3000, columns.ordinal("😊"));
+        columns.append(4, 4000, columns.ordinal("😢"));
+        columns.append(5, 5000, columns.ordinal("🙂")); // not one of EMOJIS; goes in the emoji table
+        columns.delete(columns.find(4));
+
+        File file = new File(folder.getRoot(), "snapshot.bin");
+        LogSnapshot.write(file, LogSnapshot.encode(7, 6, columns));
+        return file;
+    }
+
+    @Test
+    public void readsBackLiveEntriesGenerationAndNextId() throws IOException {
+        LogJournalTest.Recorder recorder = new LogJournalTest.Recorder();
+        LogSnapshot snapshot = LogSnapshot.read(written(), recorder);
+
+        assertEquals(7, snapshot.getGeneration());
+        assertEquals(6, snapshot.getNextId());
+        assertEquals(Arrays.asList("add 3 3000 😊", "add 5 5000 🙂"), recorder.operations);
+        assertFalse(new File(folder.getRoot(), "snapshot.bin.tmp").exists());
+    }
+
+    @Test
+    public void missingSnapshotReadsAsNull() throws IOException {
+        assertNull(LogSnapshot.read(new File(folder.getRoot(), "snapshot.bin"), new LogJournalTest.Recorder()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsCorruptSnapshot() throws IOException {
+        File file = written();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(file.length() / 2);
+            int value = raf.read();
+            raf.seek(file.length() / 2);
+            raf.write(value ^ 0x10);
+        }
+        LogSnapshot.read(file, new LogJournalTest.Recorder());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedSnapshot() throws IOException {
+        File file = written();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 10);
+        }
+        LogSnapshot.read(file, new LogJournalTest.Recorder());
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.emotilog;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for LogStorage: compaction, and what a crash or failure part way through leaves
+ */
+public class LogStorageTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final LogColumns columns = new LogColumns(LogManager.EMOJIS); // state the snapshot is encoded from
+
+    /**
+     * Appends an add to both the storage and the columns, like LogManager does
+     */
+    private void add(LogStorage storage, long id, String emoji) {
+        storage.appendAdd(id, id * 1000, emoji);
+        columns.append(id, id * 1000, columns.ordinal(emoji));
+    }
+
+    private List<String> restore(File directory) throws IOException {
+        LogJournalTest.Recorder recorder = new LogJournalTest.Recorder();
+        LogStorage.open(directory, recorder).close();
+        return recorder.operations;
+    }
+
+    private List<String> files(File directory) {
+        String[] names = directory.list();
+        Arrays.sort(names);
+        return Arrays.asList(names);
+    }
+
+    @Test
+    public void compactionReplacesOldSegmentsWithSnapshot() throws IOException {
+        File directory = folder.newFolder("emotilog");
+        LogStorage storage = LogStorage.open(directory, new LogJournalTest.Recorder());
+        add(storage, 0, "😊");
+        add(storage, 1, "😢");
+
+        storage.prepareCompaction();
+        LogStorage.Compaction compaction = storage.startCompaction(2, columns);
+        add(storage, 2, "😡");
+        storage.finishCompaction(compaction);
+        storage.close();
+
+        assertEquals(Arrays.asList("journal-1.log", "snapshot.bin"), files(directory));
+        assertEquals(Arrays.asList("add 0 0 😊", "add 1 1000 😢", "add 2 2000 😡"), restore(directory));
+        LogStorage reopened = LogStorage.open(directory, new LogJournalTest.Recorder());
+        assertEquals(2, reopened.getRestoredNextId());
+        reopened.close();
+    }
+
+    @Test
+    public void crashBeforeSnapshotIsWrittenKeepsEverySegment() throws IOException {
+        File directory = folder.newFolder("emotilog");
+        LogStorage storage = LogStorage.open(directory, new LogJournalTest.Recorder());
+        add(storage, 0, "😊");
+
+        storage.prepareCompaction();
+        storage.startCompaction(1, columns);
+        add(storage, 1, "😢");
+        storage.flush();
+        // the process dies before finishCompaction
+
+        assertEquals(Arrays.asList("journal-0.log", "journal-1.log"), files(directory));
+        assertEquals(Arrays.asList("add 0 0 😊", "add 1 1000 😢"), restore(directory));
+    }
+
+    @Test
+    public void failedSnapshotWriteLosesNothingAndLaterCompactionSucceeds() throws IOException {
+        File directory = folder.newFolder("emotilog");
+        LogStorage storage = LogStorage.open(directory, new LogJournalTest.Recorder());
+        add(storage, 0, "😊");
+        // a directory where the temporary snapshot goes makes writing it fail
+        File blocker = new File(directory, "snapshot.bin.tmp");
+        assertTrue(blocker.mkdir());
+
+        storage.prepareCompaction();
+        LogStorage.Compaction compaction = storage.startCompaction(1, columns);
+        add(storage, 1, "😢");
+        try {
+            storage.finishCompaction(compaction);
+            fail("snapshot write should have failed");
+        } catch (IOException expected) {
+            // the journal still holds everything
+        }
+        storage.flush();
+        assertEquals(Arrays.asList("add 0 0 😊", "add 1 1000 😢"), restore(directory));
+
+        assertTrue(blocker.delete());
+        storage.prepareCompaction();
+        storage.finishCompaction(storage.startCompaction(2, columns));
+        storage.close();
+        assertEquals(Arrays.asList("journal-2.log", "snapshot.bin"), files(directory));
+        assertEquals(Arrays.asList("add 0 0 😊", "add 1 1000 😢"), restore(directory));
+    }
+
+    @Test
+    public void ignoresAndRemovesSegmentsTheSnapshotCovers() throws IOException {
+        File directory = folder.newFolder("emotilog");
+        LogStorage storage = LogStorage.open(directory, new LogJournalTest.Recorder());
+        add(storage, 0, "😊");
+        storage.flush();
+        File stale = folder.newFile("journal-0.log");
+        Files.copy(new File(directory, "journal-0.log").toPath(), stale.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        storage.prepareCompaction();
+        storage.finishCompaction(storage.startCompaction(1, columns));
+        storage.close();
+        // a crash after the snapshot was renamed into place but before the old segment was deleted
+        Files.copy(stale.toPath(), new File(directory, "journal-0.log").toPath());
+
+        assertEquals(Arrays.asList("add 0 0 😊"), restore(directory));
+        assertEquals(Arrays.asList("journal-1.log", "snapshot.bin"), files(directory));
+    }
+
+    @Test
+    public void asksForCompactionOnceSegmentIsFull() throws IOException {
+        LogStorage storage = LogStorage.open(folder.newFolder("emotilog"), new LogJournalTest.Recorder());
+        for (int id = 0; id < LogStorage.COMPACT_AFTER_RECORDS - 1; id++) {
+            storage.appendAdd(id, id, "😊");
+        }
+        assertFalse(storage.shouldCompact());
+        storage.appendDelete(0);
+        assertTrue(storage.shouldCompact());
+
+        storage.prepareCompaction();
+        storage.startCompaction(LogStorage.COMPACT_AFTER_RECORDS, columns);
+        assertFalse(storage.shouldCompact());
+        storage.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void startCompactionNeedsPreparedSegment() throws IOException {
+        LogStorage storage = LogStorage.open(folder.newFolder("emotilog"), new LogJournalTest.Recorder());
+        try {
+            storage.startCompaction(0, columns);
+        } finally {
+            storage.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.emotilog;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for SummaryRows: row order, the preformatted percentage text, and which updates
+ * keep the rows on screen in place
+ */
+public class SummaryRowsTest {
+    private final SummaryRows rows = new SummaryRows(
+            ordinal -> ordinal < LogManager.EMOJIS.size() ? LogManager.EMOJIS.get(ordinal) : "emoji " + ordinal);
+
+    private List<String> shown() {
+        List<String> shown = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            shown.add(rows.get(i).emoji + " " + rows.get(i).text);
+        }
+        return shown;
+    }
+
+    @Test
+    public void sortsByCountThenByOrdinal() {
+        rows.update(new int[] {2, 5, 0, 5, 1, 0, 0, 0, 0}, 13);
+
+        assertEquals(Arrays.asList("😢 5 (38%)", "🤩 5 (38%)", "😊 2 (15%)", "😴 1 (8%)"), shown());
+    }
+
+    @Test
+    public void tiesKeepOrdinalOrderWhicheverRowWasAheadBefore() {
+        rows.update(new int[] {1, 0, 0, 4, 0, 0, 0, 0, 0}, 5);
+        assertEquals(Arrays.asList("🤩 4 (80%)", "😊 1 (20%)"), shown());
+
+        assertFalse(rows.update(new int[] {4, 0, 0, 4, 0, 0, 0, 0, 0}, 8));
+        assertEquals(Arrays.asList("😊 4 (50%)", "🤩 4 (50%)"), shown());
+    }
+
+    @Test
+    public void sameRowsInSameOrderMarkOnlyChangedText() {
+        assertFalse("rows appeared", rows.update(new int[] {50, 30, 20, 0, 0, 0, 0, 0, 0}, 100));
+        String first = rows.get(0).text;
+        String second = rows.get(1).text;
+
+        // 50 of 101 still rounds to 50% and 30 of 101 to 30%; only the last row's text changes
+        assertTrue(rows.update(new int[] {50, 30, 21, 0, 0, 0, 0, 0, 0}, 101));
+        assertEquals(Arrays.asList("😊 50 (50%)", "😢 30 (30%)", "😡 21 (21%)"), shown());
+        assertFalse(rows.get(0).changed);
+        assertFalse(rows.get(1).changed);
+        assertTrue(rows.get(2).changed);
+        assertSame(first, rows.get(0).text);
+        assertSame(second, rows.get(1).text);
+
+        assertTrue(rows.update(new int[] {50, 30, 21, 0, 0, 0, 0, 0, 0}, 101));
+        for (int i = 0; i < rows.size(); i++) {
+            assertFalse(rows.get(i).changed);
+        }
+    }
+
+    @Test
+    public void rowsMovingReportAChangedOrder() {
+        rows.update(new int[] {3, 2, 1, 0, 0, 0, 0, 0, 0}, 6);
+
+        assertFalse(rows.update(new int[] {1, 2, 3, 0, 0, 0, 0, 0, 0}, 6));
+        assertEquals(Arrays.asList("😡 3 (50%)", "😢 2 (33%)", "😊 1 (17%)"), shown());
+        assertFalse("the middle row kept its text", rows.get(1).changed);
+    }
+
+    @Test
+    public void rowsAppearingOrDisappearingReportAChangedOrder() {
+        assertTrue("nothing shown before or after", rows.update(new int[9], 0));
+        assertEquals(0, rows.size());
+
+        rows.update(new int[] {1, 1, 0, 0, 0, 0, 0, 0, 0}, 2);
+        SummaryRows.Row sad = rows.get(1);
+
+        assertFalse(rows.update(new int[] {1, 0, 0, 0, 0, 0, 0, 0, 0}, 1));
+        assertEquals(Arrays.asList("😊 1 (100%)"), shown());
+
+        assertFalse(rows.update(new int[] {1, 1, 0, 0, 0, 0, 0, 0, 0}, 2));
+        assertEquals(Arrays.asList("😊 1 (50%)", "😢 1 (50%)"), shown());
+        assertSame("rows are reused per ordinal", sad, rows.get(1));
+
+        assertFalse(rows.update(new int[9], 0));
+        assertEquals(0, rows.size());
+    }
+
+    @Test
+    public void growsForOrdinalsPastTheFixedEmojis() {
+        int[] counts = new int[LogColumns.MAX_EMOJIS];
+        counts[0] = 1;
+        counts[100] = 3;
+
+        rows.update(counts, 4);
+        assertEquals(Arrays.asList("emoji 100 3 (75%)", "😊 1 (25%)"), shown());
+        assertEquals(100, rows.get(0).ordinal);
+    }
+}
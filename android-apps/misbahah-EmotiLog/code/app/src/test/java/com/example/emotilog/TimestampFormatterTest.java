@@ -0,0 +1,96 @@
+package com.example.emotilog;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for TimestampFormatter: parity with the SimpleDateFormat it replaced, the minute
+ * cache, and formatters for other zones and locales
+ */
+public class TimestampFormatterTest {
+    private static final String PATTERN = "yyyy-MM-dd HH:mm";
+    private static final long MINUTE = 60_000L;
+    private static final long NOON = 1_705_320_000_000L; // 2024-01-15 12:00 UTC, on a minute boundary
+
+    private static String simpleDateFormat(long millis, String zone) {
+        SimpleDateFormat format = new SimpleDateFormat(PATTERN, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone(zone));
+        return format.format(new Date(millis));
+    }
+
+    @Test
+    public void matchesSimpleDateFormat() {
+        // whole-hour, half-hour, and quarter-hour offsets, with and without daylight saving
+        String[] zones = {"UTC", "America/New_York", "Europe/Berlin", "Asia/Kolkata", "Asia/Kathmandu",
+                "Australia/Adelaide"};
+        Random random = new Random(17);
+        for (String zone : zones) {
+            TimestampFormatter formatter = new TimestampFormatter(PATTERN, Locale.US, ZoneId.of(zone));
+            long[] fixed = {0, -1, NOON, NOON - 1, NOON + 59_999,
+                    1_710_054_000_000L, // 2024-03-10 07:00 UTC, when New York springs forward
+                    1_730_613_600_000L}; // 2024-11-03 06:00 UTC, when New York falls back
+            for (long millis : fixed) {
+                assertEquals(zone + " " + millis, simpleDateFormat(millis, zone), formatter.format(millis));
+            }
+            for (int i = 0; i < 2000; i++) {
+                // 1970 to 2100, so slots are shared and evicted along the way
+                long millis = (long) (random.nextDouble() * 4_102_444_800_000L);
+                assertEquals(zone + " " + millis, simpleDateFormat(millis, zone), formatter.format(millis));
+            }
+        }
+    }
+
+    @Test
+    public void returnsTheCachedStringWithinAMinute() {
+        TimestampFormatter formatter = new TimestampFormatter(PATTERN, Locale.US, ZoneId.of("UTC"));
+        String text = formatter.format(NOON);
+
+        assertEquals("2024-01-15 12:00", text);
+        assertSame(text, formatter.format(NOON));
+        assertSame(text, formatter.format(NOON + 59_999));
+        assertEquals("2024-01-15 12:01", formatter.format(NOON + MINUTE));
+        assertEquals("2024-01-15 11:59", formatter.format(NOON - 1));
+    }
+
+    @Test
+    public void minutesSharingASlotEvictEachOtherWithoutMixingUp() {
+        TimestampFormatter formatter = new TimestampFormatter(PATTERN, Locale.US, ZoneId.of("UTC"));
+        long later = NOON + 256 * MINUTE; // 256 minutes on maps to the same slot
+
+        String noon = formatter.format(NOON);
+        assertEquals("2024-01-15 16:16", formatter.format(later));
+        String again = formatter.format(NOON);
+        assertEquals("2024-01-15 12:00", again);
+        assertNotSame("the later minute evicted noon, so it is rendered again", noon, again);
+        assertSame(again, formatter.format(NOON + 30_000));
+        assertEquals("2024-01-15 16:16", formatter.format(later));
+    }
+
+    @Test
+    public void rendersInItsOwnZone() {
+        TimestampFormatter utc = new TimestampFormatter(PATTERN, Locale.US, ZoneId.of("UTC"));
+        TimestampFormatter tokyo = new TimestampFormatter(PATTERN, Locale.US, ZoneId.of("Asia/Tokyo"));
+
+        assertEquals("2024-01-15 12:00", utc.format(NOON));
+        assertEquals("2024-01-15 21:00", tokyo.format(NOON));
+        assertEquals("2024-01-15 12:00", utc.format(NOON));
+    }
+
+    @Test
+    public void isForOnlyTheSettingsItWasBuiltWith() {
+        TimestampFormatter formatter = new TimestampFormatter(PATTERN, Locale.US, ZoneId.of("UTC"));
+
+        assertTrue(formatter.isFor(PATTERN, Locale.US, ZoneId.of("UTC")));
+        assertFalse(formatter.isFor(PATTERN, Locale.US, ZoneId.of("Asia/Tokyo")));
+        assertFalse(formatter.isFor(PATTERN, Locale.GERMANY, ZoneId.of("UTC")));
+        assertFalse(formatter.isFor("HH:mm", Locale.US, ZoneId.of("UTC")));
+    }
+}
@@ -0,0 +1,56 @@
+// Pure-JVM JMH benchmarks for the plain Java model classes of the labs.
+// The Android apps cannot be depended on from a JVM project, so the framework-free
+// classes that are benchmarked are compiled straight into this module instead.
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.3"
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../lab-06/ListyCity/code/app/src/main/java")
+            srcDir("../lab-08/app/src/main/java")
+            srcDir("../android-apps/misbahah-EmotiLog/code/app/src/main/java")
+            srcDir("../lab-05/ListyCity/app/src/main/java")
+            // Only the listed classes are compiled, so new Android code in the apps cannot break this build;
+            // a benchmarked class that starts using another app class needs that class added here
+            include(
+                "com/example/listycity/City.java",
+                "com/example/listycity/CityList.java",
+                "com/example/listycity/CompactCityStore.java",
+                "com/example/listycity/ConcurrentCityList.java"
+            )
+            include(
+                "com/example/lab08/City.java",
+                "com/example/lab08/CustomList.java"
+            )
+            include("com/example/emotilog/TimestampFormatter.java")
+            include(
+                "com/example/lab5_starter/City.java",
+                "com/example/lab5_starter/CityChange.java",
+                "com/example/lab5_starter/CityMirror.java",
+                "com/example/lab5_starter/CityRepository.java",
+                "com/example/lab5_starter/InMemoryCityRepository.java"
+            )
+        }
+    }
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+jmh {
+    jmhVersion = "1.37"
+    warmupIterations = 2
+    iterations = 3
+    fork = 1
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+}
@@ -0,0 +1,58 @@
+package com.example.benchmarks;
+
+import com.example.listycity.City;
+
+import java.util.Random;
+
+/**
+ * Shared test data for the city benchmarks.
+ * <p>
+ * City number {@code i} is named "City i" and lives in one of a dozen provinces.
+ * Cities {@code 0 .. size-1} are loaded into the list under test, so probe ids
+ * below {@code size} are hits and ids from {@code size} upwards are misses.
+ * </p>
+ */
+final class CityFixtures {
+    /**
+     * Number of probes per benchmark; a power of two so the cursor can wrap with a mask.
+     */
+    static final int PROBES = 1024;
+
+    static final String[] PROVINCES = {
+            "Alberta", "British Columbia", "Manitoba", "New Brunswick",
+            "Newfoundland and Labrador", "Northwest Territories", "Nova Scotia",
+            "Nunavut", "Ontario", "Prince Edward Island", "Quebec", "Saskatchewan", "Yukon"
+    };
+
+    private CityFixtures() {
+    }
+
+    static String name(int id) {
+        return "City " + id;
+    }
+
+    static String province(int id) {
+        return PROVINCES[id % PROVINCES.length];
+    }
+
+    static City city(int id) {
+        return new City(name(id), province(id));
+    }
+
+    /**
+     * Picks {@link #PROBES} random city ids, all inside the loaded range for a
+     * hit workload and all outside it for a miss workload.
+     *
+     * @param size number of cities loaded into the list under test
+     * @param hit  whether the probes should be found in the list
+     * @return the probe ids
+     */
+    static int[] probeIds(int size, boolean hit) {
+        Random random = new Random(301);
+        int[] ids = new int[PROBES];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = hit ? random.nextInt(size) : size + i;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.benchmarks;
+
+import com.example.listycity.City;
+import com.example.listycity.CityList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hot paths of the lab-06 {@link CityList}.
+ * <p>
+ * Every benchmark leaves the list at its starting size, so the measured cost
+ * always belongs to a list of {@code size} cities. The {@code workload}
+ * parameter picks whether the probed cities are in the list ("hit") or not ("miss").
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CityListBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"hit", "miss"})
+    public String workload;
+
+    private CityList cityList;
+
+    /**
+     * Cities the benchmarks probe with, cycled through in order.
+     */
+    private City[] probes;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cityList = new CityList();
+        for (int i = 0; i < size; i++) {
+            cityList.add(CityFixtures.city(i));
+        }
+        int[] ids = CityFixtures.probeIds(size, "hit".equals(workload));
+        probes = new City[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            probes[i] = CityFixtures.city(ids[i]);
+        }
+    }
+
+    private City nextProbe() {
+        City city = probes[next];
+        next = (next + 1) & (probes.length - 1);
+        return city;
+    }
+
+    /**
+     * Looks up a city.
+     */
+    @Benchmark
+    public boolean hasCity() {
+        return cityList.hasCity(nextProbe());
+    }
+
+    /**
+     * Adds a city. A miss adds a new city and removes it again afterwards;
+     * a hit tries to add a duplicate and is rejected.
+     */
+    @Benchmark
+    public int add() {
+        City city = nextProbe();
+        try {
+            cityList.add(city);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+        cityList.delete(city);
+        return cityList.countCities();
+    }
+
+    /**
+     * Deletes a city. A hit deletes an existing city and puts it back
+     * afterwards; a miss tries to delete a city that is not in the list.
+     */
+    @Benchmark
+    public int delete() {
+        City city = nextProbe();
+        try {
+            cityList.delete(city);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+        cityList.add(city);
+        return cityList.countCities();
+    }
+
+    /**
+     * Runs a type-ahead query for the name of a probe minus its last digit, returning
+     * at most ten cities. A miss probe's prefix may still match cities with shorter ids.
+     */
+    @Benchmark
+    public List<City> findByPrefix() {
+        String name = nextProbe().getCityName();
+        return cityList.findByPrefix(name.substring(0, name.length() - 1), 10);
+    }
+
+    /**
+     * Reads the sorted list when nothing has changed since the last read.
+     */
+    @Benchmark
+    public List<City> getCities() {
+        return cityList.getCities();
+    }
+
+    /**
+     * Reads the sorted list right after a change (add and delete of a probe
+     * on a miss, delete and re-add on a hit).
+     */
+    @Benchmark
+    public List<City> getCitiesAfterChange() {
+        City city = nextProbe();
+        if (cityList.hasCity(city)) {
+            cityList.delete(city);
+            cityList.add(city);
+        } else {
+            cityList.add(city);
+            cityList.delete(city);
+        }
+        return cityList.getCities();
+    }
+}
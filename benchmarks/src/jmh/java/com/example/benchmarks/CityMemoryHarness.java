@@ -0,0 +1,75 @@
+package com.example.benchmarks;
+
+import com.example.listycity.City;
+import com.example.listycity.CityList;
+import com.example.listycity.CompactCityStore;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the heap taken by the same cities as City objects, in a lab-06
+ * {@link CityList}, and in a {@link CompactCityStore}.
+ * <p>
+ * Each structure is built in turn and the used heap is read after a few full GCs before
+ * and after, so the numbers are measured heap deltas rather than the layout estimate of
+ * {@link CompactCityStore#memoryReport()}, which is printed alongside for comparison.
+ * Cities come from {@link CityFixtures}: names like "City 123456", each its own String,
+ * and a dozen shared province Strings. This is not a JMH benchmark; run it with a fixed
+ * heap so GC sizing does not move the numbers.
+ * </p>
+ * <pre>
+ * java -Xms2g -Xmx2g -cp build/libs/Benchmarks-jmh.jar com.example.benchmarks.CityMemoryHarness [cities]
+ * </pre>
+ */
+public final class CityMemoryHarness {
+
+    private CityMemoryHarness() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long start = usedHeap();
+        List<City> cities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cities.add(CityFixtures.city(i));
+        }
+        long afterObjects = usedHeap();
+
+        CityList cityList = new CityList();
+        cityList.addAll(cities);
+        cityList.getCities(); // include the cached sorted copy the list keeps between changes
+        long afterList = usedHeap();
+
+        CompactCityStore store = CompactCityStore.of(cities);
+        long afterStore = usedHeap();
+
+        long objectBytes = afterObjects - start;
+        long listBytes = afterList - afterObjects;
+        long storeBytes = afterStore - afterList;
+        print("City objects in an ArrayList", objectBytes, count);
+        print("CityList indexes on top of them", listBytes, count);
+        print("City objects held by a CityList", objectBytes + listBytes, count);
+        print("CompactCityStore", storeBytes, count);
+        System.out.println("memoryReport() estimate: " + store.memoryReport());
+
+        Reference.reachabilityFence(cities);
+        Reference.reachabilityFence(cityList);
+        Reference.reachabilityFence(store);
+    }
+
+    private static void print(String what, long bytes, int count) {
+        System.out.printf("%-34s %,14d bytes  %6.1f bytes/city%n", what, bytes, (double) bytes / count);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
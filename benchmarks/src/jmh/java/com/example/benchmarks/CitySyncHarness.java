@@ -0,0 +1,188 @@
+package com.example.benchmarks;
+
+import com.example.lab5_starter.City;
+import com.example.lab5_starter.CityChange;
+import com.example.lab5_starter.CityMirror;
+import com.example.lab5_starter.CityRepository;
+import com.example.lab5_starter.InMemoryCityRepository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load harness for the lab-05 city sync path.
+ * <p>
+ * Replays a large collection and then a series of edit storms through an
+ * {@link InMemoryCityRepository} into the {@link CityMirror} that backs
+ * {@code MainActivity}'s list. It reports how long the listener spends applying
+ * each event and how much heap the mirror holds. A single-thread executor stands in
+ * for the main thread. This is not a JMH benchmark: it runs the repository's own
+ * threads and latencies end to end, so each run is one pass.
+ * </p>
+ * <p>
+ * Each storm writes as fast as it can: 80% edits of existing cities, 10% new cities,
+ * 10% deletes of cities added earlier in the run. Every write is exactly one change,
+ * so the harness knows when the listener has caught up.
+ * </p>
+ * <pre>
+ * java -cp build/libs/Benchmarks-jmh.jar com.example.benchmarks.CitySyncHarness [cities] [storms] [writesPerStorm] [eventLatencyMs]
+ * </pre>
+ */
+public final class CitySyncHarness {
+
+    private static final long TIMEOUT_MS = 60_000;
+
+    private CitySyncHarness() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int cities = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int storms = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int writesPerStorm = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        long eventLatencyMs = args.length > 3 ? Long.parseLong(args[3]) : 16;
+
+        ExecutorService mainThread = Executors.newSingleThreadExecutor();
+        InMemoryCityRepository repository = new InMemoryCityRepository(mainThread, eventLatencyMs, 50);
+        for (int i = 0; i < cities; i++) {
+            repository.set(id(i), new City(id(i), CityFixtures.province(i)), null);
+        }
+
+        long heapBefore = usedHeap();
+        Listener listener = new Listener();
+        CityRepository.Registration registration = repository.listen(listener);
+        listener.awaitApplied(cities);
+        long mirrorBytes = usedHeap() - heapBefore;
+        System.out.printf("initial snapshot: %,d cities applied in %.1f ms, mirror holds %,d bytes (%.0f bytes/city)%n",
+                cities, listener.applyNanos.get(0) / 1e6, mirrorBytes, (double) mirrorBytes / cities);
+        listener.reset();
+
+        Random random = new Random(523);
+        Deque<Integer> added = new ArrayDeque<>();
+        int nextId = cities;
+        long writes = 0;
+        long stormStart = System.nanoTime();
+        for (int storm = 0; storm < storms; storm++) {
+            for (int i = 0; i < writesPerStorm; i++) {
+                double kind = random.nextDouble();
+                if (kind < 0.1) {
+                    added.push(nextId);
+                    repository.set(id(nextId), new City(id(nextId), CityFixtures.province(nextId)), null);
+                    nextId++;
+                } else if (kind < 0.2 && !added.isEmpty()) {
+                    repository.delete(id(added.pop()), null);
+                } else {
+                    int target = random.nextInt(cities);
+                    repository.set(id(target), new City(id(target), CityFixtures.province(random.nextInt(1000))), null);
+                }
+            }
+            writes += writesPerStorm;
+            listener.awaitApplied(writes);
+        }
+        long stormMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - stormStart);
+
+        long[] nanos = listener.sortedApplyNanos();
+        System.out.printf("edit storms: %,d writes in %,d events over %,d ms, %.1f changes/event%n",
+                writes, nanos.length, stormMillis, (double) writes / nanos.length);
+        System.out.printf("listener apply per event: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                percentile(nanos, 0.5) / 1e6, percentile(nanos, 0.99) / 1e6, nanos[nanos.length - 1] / 1e6);
+        System.out.printf("after storms: %,d cities, mirror holds %,d bytes%n",
+                repository.size(), usedHeap() - heapBefore);
+
+        registration.remove();
+        listener.check(repository.size());
+        mainThread.shutdown();
+    }
+
+    /**
+     * Document id (and name) of city number {@code i}; zero-padded so id order matches number order.
+     */
+    private static String id(int i) {
+        return String.format("City %07d", i);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * What {@code MainActivity} does with each event, timed: apply it to a {@link CityMirror}.
+     * Runs on the stand-in main thread only; the counters are read by the harness thread.
+     */
+    private static final class Listener implements CityRepository.ChangeListener {
+        final ArrayList<City> cities = new ArrayList<>();
+        final CityMirror mirror = new CityMirror(cities);
+        final List<Long> applyNanos = new ArrayList<>();
+        final AtomicLong applied = new AtomicLong();
+
+        @Override
+        public void onChanges(List<CityChange> changes) {
+            long start = System.nanoTime();
+            mirror.apply(changes);
+            long elapsed = System.nanoTime() - start;
+            synchronized (this) {
+                applyNanos.add(elapsed);
+            }
+            applied.addAndGet(changes.size());
+        }
+
+        @Override
+        public void onError(Exception error) {
+            throw new IllegalStateException(error);
+        }
+
+        void awaitApplied(long changes) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            while (applied.get() < changes) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Listener applied " + applied.get() + " of " + changes + " changes");
+                }
+                Thread.sleep(1);
+            }
+        }
+
+        synchronized void reset() {
+            applyNanos.clear();
+            applied.set(0);
+        }
+
+        synchronized long[] sortedApplyNanos() {
+            long[] nanos = new long[applyNanos.size()];
+            for (int i = 0; i < nanos.length; i++) {
+                nanos[i] = applyNanos.get(i);
+            }
+            Arrays.sort(nanos);
+            return nanos;
+        }
+
+        /**
+         * Fails unless the mirror holds every city, in id order.
+         */
+        void check(int expectedSize) {
+            if (cities.size() != expectedSize) {
+                throw new IllegalStateException("Mirror has " + cities.size() + " cities, repository " + expectedSize);
+            }
+            for (int i = 1; i < cities.size(); i++) {
+                if (cities.get(i - 1).getName().compareTo(cities.get(i).getName()) >= 0) {
+                    throw new IllegalStateException("Mirror out of order at " + i);
+                }
+            }
+        }
+    }
+}
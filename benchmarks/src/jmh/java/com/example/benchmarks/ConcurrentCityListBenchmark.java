@@ -0,0 +1,106 @@
+package com.example.benchmarks;
+
+import com.example.listycity.City;
+import com.example.listycity.ConcurrentCityList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the lab-06 {@link ConcurrentCityList} with several threads sharing one list.
+ * <p>
+ * Each thread works on its own block of city ids, so adds from different threads never
+ * collide and the list keeps its starting size. Compare the scores with different
+ * {@code -t} values to see how throughput scales with threads.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class ConcurrentCityListBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private ConcurrentCityList cityList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cityList = new ConcurrentCityList();
+        for (int i = 0; i < size; i++) {
+            cityList.add(CityFixtures.city(i));
+        }
+    }
+
+    /**
+     * Per-thread probes: hits from the loaded range and misses from a block only this thread uses.
+     */
+    @State(Scope.Thread)
+    public static class Probes {
+        private static int nextThread;
+
+        City[] hits;
+        City[] misses;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentCityListBenchmark benchmark) {
+            int thread;
+            synchronized (Probes.class) {
+                thread = nextThread++;
+            }
+            int[] hitIds = CityFixtures.probeIds(benchmark.size, true);
+            hits = new City[hitIds.length];
+            misses = new City[hitIds.length];
+            for (int i = 0; i < hitIds.length; i++) {
+                hits[i] = CityFixtures.city(hitIds[i]);
+                misses[i] = CityFixtures.city(benchmark.size + thread * CityFixtures.PROBES + i);
+            }
+        }
+
+        int advance() {
+            int i = next;
+            next = (next + 1) & (CityFixtures.PROBES - 1);
+            return i;
+        }
+    }
+
+    /**
+     * Looks up a city that is in the list.
+     */
+    @Benchmark
+    public boolean hasCity(Probes probes) {
+        return cityList.hasCity(probes.hits[probes.advance()]);
+    }
+
+    /**
+     * Adds a new city and deletes it again.
+     */
+    @Benchmark
+    public int addDelete(Probes probes) {
+        City city = probes.misses[probes.advance()];
+        cityList.add(city);
+        cityList.delete(city);
+        return cityList.countCities();
+    }
+
+    /**
+     * Reads a consistent sorted copy of the list while nothing changes.
+     */
+    @Benchmark
+    public List<City> getCities() {
+        return cityList.getCities();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.benchmarks;
+
+import com.example.lab08.City;
+import com.example.lab08.CustomList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the lab-08 {@link CustomList}.
+ * <p>
+ * Every benchmark leaves the list at its starting size. The {@code workload}
+ * parameter picks whether the probed cities are in the list ("hit") or not ("miss").
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CustomListBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"hit", "miss"})
+    public String workload;
+
+    private CustomList customList;
+
+    /**
+     * Cities the benchmarks probe with, cycled through in order.
+     */
+    private City[] probes;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        customList = new CustomList();
+        for (int i = 0; i < size; i++) {
+            customList.addCity(new City(CityFixtures.name(i), CityFixtures.province(i)));
+        }
+        int[] ids = CityFixtures.probeIds(size, "hit".equals(workload));
+        probes = new City[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            probes[i] = new City(CityFixtures.name(ids[i]), CityFixtures.province(ids[i]));
+        }
+    }
+
+    private City nextProbe() {
+        City city = probes[next];
+        next = (next + 1) & (probes.length - 1);
+        return city;
+    }
+
+    /**
+     * Looks up a city.
+     */
+    @Benchmark
+    public boolean hasCity() {
+        return customList.hasCity(nextProbe());
+    }
+
+    /**
+     * Adds a city and deletes it again. CustomList does not reject duplicates,
+     * so on a hit the delete removes the earlier copy and the list keeps its size.
+     */
+    @Benchmark
+    public int addCity() {
+        City city = nextProbe();
+        customList.addCity(city);
+        customList.deleteCity(city);
+        return customList.countCities();
+    }
+
+    /**
+     * Deletes a city. A hit deletes an existing city and adds it back
+     * afterwards; a miss deletes a city that is not in the list.
+     */
+    @Benchmark
+    public int deleteCity() {
+        City city = nextProbe();
+        if (customList.hasCity(city)) {
+            customList.deleteCity(city);
+            customList.addCity(city);
+        } else {
+            customList.deleteCity(city);
+        }
+        return customList.countCities();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.benchmarks;
+
+import com.example.emotilog.TimestampFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the timestamp formatting done on every EmotiLog event row bind.
+ * <p>
+ * {@code simpleDateFormat} is what {@code EventListAdapter.getView} did before
+ * (wrap the millis in a {@code Date} and format it with {@code SimpleDateFormat});
+ * {@code timestampFormatter} is what it does now. Scores are binds per millisecond.
+ * The {@code minutes} parameter is how many distinct minutes the day's logs are
+ * spread over: 10 for a burst of taps, 1440 for logs all day long.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TimestampFormatBenchmark {
+
+    private static final String PATTERN = "yyyy-MM-dd HH:mm";
+
+    private static final int ROWS = 1024;
+
+    @Param({"10", "1440"})
+    public int minutes;
+
+    private SimpleDateFormat simpleDateFormat;
+
+    private TimestampFormatter timestampFormatter;
+
+    /**
+     * Timestamps of the rows being bound, cycled through in order.
+     */
+    private long[] timestamps;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        simpleDateFormat = new SimpleDateFormat(PATTERN, Locale.US);
+        timestampFormatter = new TimestampFormatter(PATTERN, Locale.US, ZoneId.systemDefault());
+        Random random = new Random(42);
+        long start = System.currentTimeMillis() - 24L * 60 * 60 * 1000;
+        timestamps = new long[ROWS];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = start + (long) (random.nextDouble() * minutes * 60_000L);
+        }
+    }
+
+    private long nextTimestamp() {
+        long timestamp = timestamps[next];
+        next = (next + 1) % timestamps.length;
+        return timestamp;
+    }
+
+    @Benchmark
+    public String simpleDateFormat() {
+        return simpleDateFormat.format(new Date(nextTimestamp()));
+    }
+
+    @Benchmark
+    public String timestampFormatter() {
+        return timestampFormatter.format(nextTimestamp());
+    }
+}
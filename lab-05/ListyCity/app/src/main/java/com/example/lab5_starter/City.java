@@ -8,6 +8,7 @@ public class City implements Serializable {
     // attributes
     private String name;
     private String province;
+    private boolean pending; // a local change to this city is waiting for the server
 
     // constructor
     public City(String name, String province) {
@@ -30,4 +31,12 @@ public class City implements Serializable {
     public void setName(String name) {
         this.name = name;
     }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    public void setPending(boolean pending) {
+        this.pending = pending;
+    }
 }
@@ -35,6 +35,8 @@ public class CityArrayAdapter extends ArrayAdapter<City> {
 
         movieName.setText(city.getName());
         movieYear.setText(city.getProvince());
+        // dim rows whose local change the server hasn't confirmed yet
+        view.setAlpha(city.isPending() ? 0.5f : 1f);
 
         return view;
     }
@@ -0,0 +1,49 @@
+package com.example.lab5_starter;
+
+// One document change in a cities snapshot, independent of where the snapshot came from.
+// Mirrors Firestore's DocumentChange: indexes are positions in the collection ordered by
+// document id, and each one already accounts for the changes before it in the same snapshot.
+public class CityChange {
+
+    public enum Type { ADDED, MODIFIED, REMOVED }
+
+    private final Type type;
+    private final String id; // document id
+    private final String name;
+    private final String province;
+    private final int oldIndex; // position before the change, -1 for ADDED
+    private final int newIndex; // position after the change, -1 for REMOVED
+
+    public CityChange(Type type, String id, String name, String province, int oldIndex, int newIndex) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.province = province;
+        this.oldIndex = oldIndex;
+        this.newIndex = newIndex;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getProvince() {
+        return province;
+    }
+
+    public int getOldIndex() {
+        return oldIndex;
+    }
+
+    public int getNewIndex() {
+        return newIndex;
+    }
+}
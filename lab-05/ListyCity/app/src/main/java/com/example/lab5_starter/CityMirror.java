@@ -0,0 +1,66 @@
+package com.example.lab5_starter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Local copy of the cities collection, kept in the same order as the listener's query.
+// Only the document changes of each snapshot are applied, so handling a snapshot costs
+// O(changes) instead of rebuilding every City.
+public class CityMirror {
+
+    private final ArrayList<City> cities; // list shown by the adapter, in query order
+    private final ArrayList<String> ids = new ArrayList<>(); // document id of each city in the list
+    private final Map<String, City> citiesById = new HashMap<>(); // document id -> city in the list
+
+    public CityMirror(ArrayList<City> cities) {
+        this.cities = cities;
+    }
+
+    // Applies one snapshot's changes in the order the repository reports them.
+    // Each change's old/new index already accounts for the changes before it.
+    // Returns true if the list changed.
+    public boolean apply(List<CityChange> changes) {
+        for (CityChange change : changes) {
+            String id = change.getId();
+            switch (change.getType()) {
+                case ADDED: {
+                    City city = new City(change.getName(), change.getProvince());
+                    citiesById.put(id, city);
+                    ids.add(change.getNewIndex(), id);
+                    cities.add(change.getNewIndex(), city);
+                    break;
+                }
+                case MODIFIED: {
+                    // update the existing City so the row keeps its object
+                    City city = citiesById.get(id);
+                    city.setName(change.getName());
+                    city.setProvince(change.getProvince());
+                    if (change.getOldIndex() != change.getNewIndex()) {
+                        ids.add(change.getNewIndex(), ids.remove(change.getOldIndex()));
+                        cities.remove(change.getOldIndex());
+                        cities.add(change.getNewIndex(), city);
+                    }
+                    break;
+                }
+                case REMOVED:
+                    citiesById.remove(id);
+                    ids.remove(change.getOldIndex());
+                    cities.remove(change.getOldIndex());
+                    break;
+            }
+        }
+        return !changes.isEmpty();
+    }
+
+    // Document id of the city at a position in the list
+    public String getId(int index) {
+        return ids.get(index);
+    }
+
+    // City with the given document id, or null if the list doesn't have it
+    public City getCity(String id) {
+        return citiesById.get(id);
+    }
+}
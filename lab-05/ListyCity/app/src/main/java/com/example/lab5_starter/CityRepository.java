@@ -0,0 +1,46 @@
+package com.example.lab5_starter;
+
+import java.util.List;
+
+// Where MainActivity reads and writes cities.
+// FirestoreCityRepository is the real backend; InMemoryCityRepository stands in for it
+// in load tests, without a network or the Android SDK.
+public interface CityRepository {
+
+    // Receives the cities collection as a stream of changes: first every city as ADDED,
+    // then whatever changed since the previous call
+    interface ChangeListener {
+        void onChanges(List<CityChange> changes);
+
+        void onError(Exception error);
+    }
+
+    // Told when a write is acknowledged; error is null on success
+    interface WriteCallback {
+        void onComplete(Exception error);
+    }
+
+    // Stops a ChangeListener
+    interface Registration {
+        void remove();
+    }
+
+    // Listens to the whole collection
+    Registration listen(ChangeListener listener);
+
+    // Listens to at most limit cities in id order, starting after startAfterId (null: from the first).
+    // Like a Firestore limit() query, cities move in and out at the end as the collection changes.
+    Registration listenPage(String startAfterId, int limit, ChangeListener listener);
+
+    // Listens to every city with an id after startAfterId (null: from the first) up to and including endAtId
+    Registration listenRange(String startAfterId, String endAtId, ChangeListener listener);
+
+    // Creates or replaces the city document with the given id; callback may be null
+    void set(String id, City city, WriteCallback callback);
+
+    // Deletes the city document with the given id; callback may be null
+    void delete(String id, WriteCallback callback);
+
+    // Sends any writes the repository is still holding back
+    void flush();
+}
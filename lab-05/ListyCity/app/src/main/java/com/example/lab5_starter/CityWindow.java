@@ -0,0 +1,334 @@
+package com.example.lab5_starter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Shows a sliding window of the cities collection, a few pages in document id order,
+// with only those pages under live listening.
+// The open end of the window is a limit query (listenPage). When the next page is
+// loaded, that page is pinned to the id range it covered (listenRange), so its
+// boundaries stay put and later pages start after them without gaps or overlaps.
+// Once the window holds more than MAX_PAGES pages, the page at the other end is
+// dropped: its listener is removed and its cities are released. Only the range
+// bounds of pages dropped above are kept, so scrolling back up can listen to them again.
+// Memory and snapshot traffic therefore depend on the window size, not the collection size.
+// Writes made through the window show up right away: each is kept as a pending change on top
+// of the pages (shown tagged as pending, or hidden for a delete) until the repository reports
+// the write done. Snapshots of a pending city leave the row as it is, so the list doesn't
+// flicker while the server catches up; a failed write just drops its pending change.
+// The shown list is kept sorted by id and updated one row per change, write, or settled
+// write, so a snapshot costs O(changes + pending writes) row lookups, not a pass over the window.
+// Call from the main thread only (the thread the repository delivers events on).
+public class CityWindow {
+
+    static final int PAGE_SIZE = 50; // cities per page when a page is first loaded
+    static final int MAX_PAGES = 4; // pages under live listening at once
+
+    // Told when the window's cities changed
+    public interface Listener {
+        // shift: cities added (positive) or removed (negative) in front of the ones
+        // shown before, so the list can keep its scroll position
+        void onWindowChanged(int shift);
+
+        void onError(Exception error);
+    }
+
+    private final CityRepository repository;
+    private final ArrayList<City> cities; // every page's cities in order, shown by the adapter
+    private final ArrayList<String> shownIds = new ArrayList<>(); // document id of each shown city, ascending
+    private final Listener listener;
+    private final Deque<Page> pages = new ArrayDeque<>(); // pages in the window, top first
+    private final Deque<Page> droppedAbove = new ArrayDeque<>(); // bounds of pages dropped off the top, nearest last
+    private final Map<String, Pending> pending = new HashMap<>(); // document id -> latest unconfirmed write
+    private long writes; // numbers the writes, so only the latest one clears its pending change
+
+    // A write not yet confirmed: the city as written, or null for a delete
+    private static class Pending {
+        final long write;
+        final City city;
+
+        Pending(long write, City city) {
+            this.write = write;
+            this.city = city;
+        }
+    }
+
+    // One page: its id range, its cities, and the listener keeping them current
+    private class Page {
+        final String startAfter; // exclusive lower bound, null for the first page
+        String endAt; // inclusive upper bound, null while this is the open end of the window
+        ArrayList<City> cities = new ArrayList<>();
+        CityMirror mirror = new CityMirror(cities);
+        CityRepository.Registration registration;
+        boolean loaded; // the current listener's first snapshot has arrived
+        boolean shiftOnLoad; // the page was added above the shown cities
+
+        Page(String startAfter, String endAt) {
+            this.startAfter = startAfter;
+            this.endAt = endAt;
+        }
+
+        void listen() {
+            loaded = false;
+            CityRepository.ChangeListener pageListener = new CityRepository.ChangeListener() {
+                @Override
+                public void onChanges(List<CityChange> changes) {
+                    onPageChanges(Page.this, changes);
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    listener.onError(error);
+                }
+            };
+            registration = endAt == null
+                    ? repository.listenPage(startAfter, PAGE_SIZE, pageListener)
+                    : repository.listenRange(startAfter, endAt, pageListener);
+        }
+
+        void stop() {
+            registration.remove();
+            cities = new ArrayList<>();
+            mirror = new CityMirror(cities);
+        }
+    }
+
+    public CityWindow(CityRepository repository, ArrayList<City> cities, Listener listener) {
+        this.repository = repository;
+        this.cities = cities;
+        this.listener = listener;
+    }
+
+    // Starts listening to the first page
+    public void start() {
+        Page first = new Page(null, null);
+        pages.add(first);
+        first.listen();
+    }
+
+    // Stops every page listener
+    public void stop() {
+        for (Page page : pages) {
+            page.registration.remove();
+        }
+        pages.clear();
+        droppedAbove.clear();
+    }
+
+    // Loads the page after the window unless the collection ends inside the open last page;
+    // call as the list nears its end
+    public void loadNext() {
+        Page last = pages.peekLast();
+        if (last == null || !allLoaded() || (last.endAt == null && last.cities.size() < PAGE_SIZE)) {
+            return;
+        }
+        if (last.endAt == null) {
+            // pin the open page to the range it covers now, so the next page can start right after it
+            last.endAt = last.mirror.getId(last.cities.size() - 1);
+            last.registration.remove();
+            last.listen();
+        }
+        Page next = new Page(last.endAt, null);
+        pages.addLast(next);
+        next.listen();
+
+        if (pages.size() > MAX_PAGES) {
+            Page first = pages.removeFirst();
+            first.stop();
+            droppedAbove.addLast(first);
+            listener.onWindowChanged(-fitToWindow());
+        }
+    }
+
+    // Listens again to the page dropped just above the window; call as the list nears its top
+    public void loadPrevious() {
+        if (droppedAbove.isEmpty() || !allLoaded()) {
+            return;
+        }
+        Page previous = droppedAbove.removeLast();
+        previous.shiftOnLoad = true;
+        pages.addFirst(previous);
+        previous.listen();
+
+        if (pages.size() > MAX_PAGES) {
+            pages.removeLast().stop();
+            fitToWindow();
+            listener.onWindowChanged(0);
+        }
+    }
+
+    // Writes the city and shows it at once
+    public void set(String id, City city, CityRepository.WriteCallback callback) {
+        City shown = new City(city.getName(), city.getProvince());
+        shown.setPending(true);
+        write(id, shown);
+        repository.set(id, city, settle(id, callback));
+    }
+
+    // Deletes the city and hides it at once
+    public void delete(String id, CityRepository.WriteCallback callback) {
+        write(id, null);
+        repository.delete(id, settle(id, callback));
+    }
+
+    private void write(String id, City city) {
+        pending.put(id, new Pending(++writes, city));
+        showRow(id);
+        listener.onWindowChanged(0);
+    }
+
+    // Drops the pending change once its write is done, unless a later write replaced it;
+    // the pages then show what the server has (the write itself, or the old city if it failed)
+    private CityRepository.WriteCallback settle(String id, CityRepository.WriteCallback callback) {
+        long write = writes;
+        return e -> {
+            Pending current = pending.get(id);
+            if (current != null && current.write == write) {
+                pending.remove(id);
+                showRow(id);
+                listener.onWindowChanged(0);
+            }
+            if (callback != null) {
+                callback.onComplete(e);
+            }
+        };
+    }
+
+    private boolean allLoaded() {
+        for (Page page : pages) {
+            if (!page.loaded) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void onPageChanges(Page page, List<CityChange> changes) {
+        int shownBefore = cities.size();
+        if (!page.loaded) {
+            // the first snapshot of a new listener lists the whole page again
+            ArrayList<String> previousIds = new ArrayList<>(page.cities.size());
+            for (int i = 0; i < page.cities.size(); i++) {
+                previousIds.add(page.mirror.getId(i));
+            }
+            page.cities.clear();
+            page.mirror = new CityMirror(page.cities);
+            page.loaded = true;
+            for (String id : previousIds) {
+                showRow(id);
+            }
+        }
+        page.mirror.apply(changes);
+        for (CityChange change : changes) {
+            showRow(change.getId());
+        }
+        fitToWindow();
+        int shift = 0;
+        if (page.shiftOnLoad) {
+            // everything this page brought in is above the cities shown before
+            page.shiftOnLoad = false;
+            shift = cities.size() - shownBefore;
+        }
+        listener.onWindowChanged(shift);
+    }
+
+    // Brings the shown row for one id in line with the latest pending write or, without one, the
+    // page that has the id; pending cities only show inside the window
+    private void showRow(String id) {
+        Pending write = pending.get(id);
+        City city = write != null ? write.city : pageCity(id);
+        if (city != null && write != null && !inWindow(id)) {
+            city = null;
+        }
+        int index = Collections.binarySearch(shownIds, id);
+        if (index >= 0) {
+            if (city == null) {
+                shownIds.remove(index);
+                cities.remove(index);
+            } else if (cities.get(index) != city) {
+                cities.set(index, city);
+            }
+        } else if (city != null) {
+            index = -index - 1;
+            shownIds.add(index, id);
+            cities.add(index, city);
+        }
+    }
+
+    private City pageCity(String id) {
+        for (Page page : pages) {
+            City city = page.mirror.getCity(id);
+            if (city != null) {
+                return city;
+            }
+        }
+        return null;
+    }
+
+    // Drops shown rows the window no longer covers and shows the pending cities it now does;
+    // call after the window's bounds moved. Returns the rows dropped from the top
+    private int fitToWindow() {
+        Page first = firstShowing();
+        int above = 0;
+        if (first == null) {
+            above = shownIds.size();
+        } else if (first.startAfter != null) {
+            above = Collections.binarySearch(shownIds, first.startAfter);
+            above = above >= 0 ? above + 1 : -above - 1;
+        }
+        shownIds.subList(0, above).clear();
+        cities.subList(0, above).clear();
+
+        String upper = first == null ? null : upperBound();
+        if (upper != null) {
+            int below = Collections.binarySearch(shownIds, upper);
+            below = below >= 0 ? below + 1 : -below - 1;
+            shownIds.subList(below, shownIds.size()).clear();
+            cities.subList(below, cities.size()).clear();
+        }
+        for (String id : pending.keySet()) {
+            showRow(id);
+        }
+        return above;
+    }
+
+    // Whether the id lies between the first and the last page that have cities or a snapshot
+    private boolean inWindow(String id) {
+        Page first = firstShowing();
+        if (first == null || (first.startAfter != null && id.compareTo(first.startAfter) <= 0)) {
+            return false;
+        }
+        String upper = upperBound();
+        return upper == null || id.compareTo(upper) <= 0;
+    }
+
+    // Top page that shows anything: a page listened to again from above shows nothing until
+    // its first snapshot, while a page re-pinned by loadNext keeps its cities meanwhile
+    private Page firstShowing() {
+        for (Page page : pages) {
+            if (page.loaded || !page.cities.isEmpty()) {
+                return page;
+            }
+        }
+        return null;
+    }
+
+    // Last id the window shows, null when it runs to the end of the collection; a new page at
+    // the bottom shows nothing until its first snapshot, and ids past a full open page belong
+    // to the next page, not yet loaded
+    private String upperBound() {
+        Page last = pages.peekLast();
+        if (!last.loaded && last.cities.isEmpty()) {
+            return last.startAfter;
+        }
+        if (last.endAt != null) {
+            return last.endAt;
+        }
+        return last.cities.size() < PAGE_SIZE ? null : last.mirror.getId(last.cities.size() - 1);
+    }
+}
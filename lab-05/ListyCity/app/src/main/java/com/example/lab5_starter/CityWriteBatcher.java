@@ -0,0 +1,92 @@
+package com.example.lab5_starter;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.List;
+import java.util.Map;
+
+// Collects writes to one collection for a short window and commits them as WriteBatches.
+// Several writes to the same document within a window collapse into the last one,
+// so repeated edits cost one write instead of one round trip each.
+// Every call still gets its own Task, completed when the write that covers it commits.
+// The coalescing itself lives in CityWriteQueue; this class adds the timing and Firestore.
+// Call from the main thread only.
+public class CityWriteBatcher {
+
+    static final long WINDOW_MS = 100; // how long writes are collected before committing
+    static final int MAX_BATCH_WRITES = 500; // Firestore's limit on writes per batch
+
+    private final FirebaseFirestore db;
+    private final CollectionReference collection;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushTask = this::flush;
+
+    // writes waiting for the window to end, one per document
+    private final CityWriteQueue<TaskCompletionSource<Void>> pending = new CityWriteQueue<>();
+
+    public CityWriteBatcher(FirebaseFirestore db, CollectionReference collection) {
+        this.db = db;
+        this.collection = collection;
+    }
+
+    // Queues a set() of the document; replaces any write to it still waiting
+    public Task<Void> set(String id, Map<String, Object> data) {
+        return enqueue(id, data);
+    }
+
+    // Queues a delete() of the document; replaces any write to it still waiting
+    public Task<Void> delete(String id) {
+        return enqueue(id, null);
+    }
+
+    // Commits everything queued now instead of waiting for the window to end
+    public void flush() {
+        handler.removeCallbacks(flushTask);
+        for (List<CityWriteQueue.Write<TaskCompletionSource<Void>>> batch : pending.drain(MAX_BATCH_WRITES)) {
+            commit(batch);
+        }
+    }
+
+    private Task<Void> enqueue(String id, Map<String, Object> data) {
+        TaskCompletionSource<Void> source = new TaskCompletionSource<>();
+        boolean newWindow = pending.add(id, data, source);
+
+        if (pending.size() >= MAX_BATCH_WRITES) {
+            flush(); // a full batch is ready; no point waiting
+        } else if (newWindow) {
+            handler.postDelayed(flushTask, WINDOW_MS);
+        }
+        return source.getTask();
+    }
+
+    private void commit(List<CityWriteQueue.Write<TaskCompletionSource<Void>>> writes) {
+        WriteBatch batch = db.batch();
+        for (CityWriteQueue.Write<TaskCompletionSource<Void>> write : writes) {
+            if (write.data == null) {
+                batch.delete(collection.document(write.id));
+            } else {
+                batch.set(collection.document(write.id), write.data);
+            }
+        }
+
+        // the batch is atomic, so every write in it shares one outcome
+        batch.commit().addOnCompleteListener(task -> {
+            for (CityWriteQueue.Write<TaskCompletionSource<Void>> write : writes) {
+                for (TaskCompletionSource<Void> source : write.waiting) {
+                    if (task.isSuccessful()) {
+                        source.setResult(null);
+                    } else {
+                        source.setException(task.getException());
+                    }
+                }
+            }
+        });
+    }
+}
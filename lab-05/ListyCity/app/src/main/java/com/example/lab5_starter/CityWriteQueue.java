@@ -0,0 +1,59 @@
+package com.example.lab5_starter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The writes CityWriteBatcher is holding back, at most one per document.
+// A later write to a document replaces the data of the earlier one but keeps everyone
+// waiting on it, so they all complete with the write that covers them.
+// Free of Firestore and Android types (W is whatever the caller waits with), so the
+// coalescing can be unit tested on its own. Not thread-safe; CityWriteBatcher uses it
+// from the main thread only.
+class CityWriteQueue<W> {
+
+    // One document's latest write plus everyone waiting on it
+    static class Write<W> {
+        final String id;
+        Map<String, Object> data; // fields to set, or null to delete the document
+        final List<W> waiting = new ArrayList<>();
+
+        Write(String id) {
+            this.id = id;
+        }
+    }
+
+    // document id -> its latest write, in the order documents were first written
+    private final Map<String, Write<W>> writes = new LinkedHashMap<>();
+
+    // Queues a write of the document (data null: delete), replacing any write to it still queued.
+    // Returns true if the queue was empty before, i.e. this write starts a new window
+    boolean add(String id, Map<String, Object> data, W waiter) {
+        boolean first = writes.isEmpty();
+        Write<W> write = writes.get(id);
+        if (write == null) {
+            write = new Write<>(id);
+            writes.put(id, write);
+        }
+        write.data = data; // last write wins
+        write.waiting.add(waiter);
+        return first;
+    }
+
+    // Documents with a queued write
+    int size() {
+        return writes.size();
+    }
+
+    // Empties the queue, returning its writes in batches of at most maxBatch, first written first
+    List<List<Write<W>>> drain(int maxBatch) {
+        List<Write<W>> all = new ArrayList<>(writes.values());
+        writes.clear();
+        List<List<Write<W>>> batches = new ArrayList<>();
+        for (int start = 0; start < all.size(); start += maxBatch) {
+            batches.add(new ArrayList<>(all.subList(start, Math.min(start + maxBatch, all.size()))));
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.lab5_starter;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// CityRepository backed by a Firestore collection.
+// Writes go through a CityWriteBatcher; snapshot listeners run on the main thread.
+public class FirestoreCityRepository implements CityRepository {
+
+    private final CollectionReference citiesRef;
+    private final CityWriteBatcher writer;
+
+    public FirestoreCityRepository(FirebaseFirestore db, String collectionPath) {
+        citiesRef = db.collection(collectionPath);
+        writer = new CityWriteBatcher(db, citiesRef);
+    }
+
+    @Override
+    public Registration listen(ChangeListener listener) {
+        return listen(citiesRef, listener);
+    }
+
+    @Override
+    public Registration listenPage(String startAfterId, int limit, ChangeListener listener) {
+        return listen(orderedAfter(startAfterId).limit(limit), listener);
+    }
+
+    @Override
+    public Registration listenRange(String startAfterId, String endAtId, ChangeListener listener) {
+        return listen(orderedAfter(startAfterId).endAt(endAtId), listener);
+    }
+
+    // Cities in document id order, after the cursor if there is one
+    private Query orderedAfter(String startAfterId) {
+        Query query = citiesRef.orderBy(FieldPath.documentId());
+        return startAfterId == null ? query : query.startAfter(startAfterId);
+    }
+
+    private Registration listen(Query query, ChangeListener listener) {
+        ListenerRegistration registration = query.addSnapshotListener((value, error) -> {
+            if (error != null) {
+                listener.onError(error);
+                return;
+            }
+            if (value == null) {
+                return;
+            }
+
+            List<DocumentChange> documentChanges = value.getDocumentChanges();
+            List<CityChange> changes = new ArrayList<>(documentChanges.size());
+            for (DocumentChange change : documentChanges) {
+                DocumentSnapshot document = change.getDocument();
+                changes.add(new CityChange(CityChange.Type.valueOf(change.getType().name()), document.getId(),
+                        document.getString("name"), document.getString("province"),
+                        change.getOldIndex(), change.getNewIndex()));
+            }
+            listener.onChanges(changes);
+        });
+        return registration::remove;
+    }
+
+    @Override
+    public void set(String id, City city, WriteCallback callback) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", city.getName());
+        data.put("province", city.getProvince());
+        notify(writer.set(id, data), callback);
+    }
+
+    @Override
+    public void delete(String id, WriteCallback callback) {
+        notify(writer.delete(id), callback);
+    }
+
+    @Override
+    public void flush() {
+        writer.flush();
+    }
+
+    private static void notify(Task<Void> write, WriteCallback callback) {
+        if (callback != null) {
+            write.addOnCompleteListener(task -> callback.onComplete(task.isSuccessful() ? null : task.getException()));
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.lab5_starter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// CityRepository kept in memory, for load tests without a Firestore backend.
+// It behaves like a Firestore query listener: a new listener first gets every matching city
+// as ADDED, and later writes reach it as change events with old/new indexes in document id
+// order. A page listener (limit query) also gets the REMOVED/ADDED of cities pushed past or
+// pulled into its end. Changes made while an event is on its way are delivered together in
+// that event, the way Firestore folds changes into one snapshot when the listener falls behind.
+// Events arrive eventLatencyMs after the first change in them, and write callbacks
+// ackLatencyMs after the write, both on the given executor.
+// Safe to call from any thread.
+public class InMemoryCityRepository implements CityRepository {
+
+    private static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private final Executor callbackExecutor; // runs events and write callbacks; must run tasks in order
+    private final long eventLatencyMs;
+    private final long ackLatencyMs;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "InMemoryCityRepository");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ArrayList<String> ids = new ArrayList<>(); // document ids, sorted like Firestore orders them
+    private final Map<String, City> cities = new HashMap<>(); // document id -> stored copy
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    // One listener, the ids its query currently matches, and the changes not yet delivered to it
+    private class Subscription implements Registration {
+        final ChangeListener listener;
+        final String startAfter; // exclusive lower bound, null for none
+        final String endAt; // inclusive upper bound, null for none
+        final int limit; // most ids matched, NO_LIMIT for none
+        final ArrayList<String> view = new ArrayList<>(); // ids matched, sorted
+        List<CityChange> pending = new ArrayList<>();
+        boolean delivered; // the first event, possibly empty, has been delivered
+        boolean removed;
+
+        Subscription(ChangeListener listener, String startAfter, String endAt, int limit) {
+            this.listener = listener;
+            this.startAfter = startAfter;
+            this.endAt = endAt;
+            this.limit = limit;
+        }
+
+        boolean inRange(String id) {
+            return (startAfter == null || id.compareTo(startAfter) > 0) && (endAt == null || id.compareTo(endAt) <= 0);
+        }
+
+        // Adds the next matching id after the view's end, if there is one; for pages that lost a city
+        void fill() {
+            int next = firstAfter(view.isEmpty() ? startAfter : view.get(view.size() - 1));
+            if (next < ids.size() && inRange(ids.get(next))) {
+                String id = ids.get(next);
+                view.add(id);
+                add(CityChange.Type.ADDED, id, cities.get(id), -1, view.size() - 1);
+            }
+        }
+
+        // Works out what one write means for this query; called after ids and cities are updated
+        void changed(String id, City city, City previous) {
+            if (!inRange(id)) {
+                return;
+            }
+            int index = Collections.binarySearch(view, id);
+            if (city == null) {
+                if (index >= 0) {
+                    view.remove(index);
+                    add(CityChange.Type.REMOVED, id, previous, index, -1);
+                    if (limit != NO_LIMIT) {
+                        fill();
+                    }
+                }
+            } else if (index >= 0) {
+                add(CityChange.Type.MODIFIED, id, city, index, index);
+            } else {
+                index = -index - 1;
+                if (index >= limit) {
+                    return; // past the end of a full page
+                }
+                view.add(index, id);
+                add(CityChange.Type.ADDED, id, city, -1, index);
+                if (view.size() > limit) {
+                    String pushedOut = view.remove(limit);
+                    add(CityChange.Type.REMOVED, pushedOut, cities.get(pushedOut), limit, -1);
+                }
+            }
+        }
+
+        void add(CityChange.Type type, String id, City city, int oldIndex, int newIndex) {
+            pending.add(new CityChange(type, id, city.getName(), city.getProvince(), oldIndex, newIndex));
+            if (pending.size() == 1) {
+                schedule(this);
+            }
+        }
+
+        @Override
+        public void remove() {
+            synchronized (InMemoryCityRepository.this) {
+                removed = true;
+                subscriptions.remove(this);
+            }
+        }
+    }
+
+    // callbackExecutor stands in for the main thread, e.g. a single-thread executor
+    public InMemoryCityRepository(Executor callbackExecutor, long eventLatencyMs, long ackLatencyMs) {
+        this.callbackExecutor = callbackExecutor;
+        this.eventLatencyMs = eventLatencyMs;
+        this.ackLatencyMs = ackLatencyMs;
+    }
+
+    @Override
+    public Registration listen(ChangeListener listener) {
+        return subscribe(new Subscription(listener, null, null, NO_LIMIT));
+    }
+
+    @Override
+    public Registration listenPage(String startAfterId, int limit, ChangeListener listener) {
+        return subscribe(new Subscription(listener, startAfterId, null, limit));
+    }
+
+    @Override
+    public Registration listenRange(String startAfterId, String endAtId, ChangeListener listener) {
+        return subscribe(new Subscription(listener, startAfterId, endAtId, NO_LIMIT));
+    }
+
+    @Override
+    public void set(String id, City city, WriteCallback callback) {
+        synchronized (this) {
+            int index = Collections.binarySearch(ids, id);
+            if (index < 0) {
+                ids.add(-index - 1, id);
+            }
+            City stored = new City(city.getName(), city.getProvince());
+            City previous = cities.put(id, stored);
+            for (Subscription subscription : subscriptions) {
+                subscription.changed(id, stored, previous);
+            }
+        }
+        acknowledge(callback);
+    }
+
+    @Override
+    public void delete(String id, WriteCallback callback) {
+        synchronized (this) {
+            // deleting a missing document succeeds without a change, like in Firestore
+            City previous = cities.remove(id);
+            if (previous != null) {
+                ids.remove(Collections.binarySearch(ids, id));
+                for (Subscription subscription : subscriptions) {
+                    subscription.changed(id, null, previous);
+                }
+            }
+        }
+        acknowledge(callback);
+    }
+
+    @Override
+    public void flush() {
+        // nothing is held back
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    private synchronized Registration subscribe(Subscription subscription) {
+        for (int i = firstAfter(subscription.startAfter); i < ids.size() && subscription.view.size() < subscription.limit; i++) {
+            String id = ids.get(i);
+            if (!subscription.inRange(id)) {
+                break;
+            }
+            subscription.view.add(id);
+            subscription.add(CityChange.Type.ADDED, id, cities.get(id), -1, subscription.view.size() - 1);
+        }
+        if (subscription.pending.isEmpty()) {
+            schedule(subscription); // an empty first snapshot is still delivered
+        }
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    // Index in ids of the first id after the given one (null: the first id)
+    private int firstAfter(String id) {
+        if (id == null) {
+            return 0;
+        }
+        int index = Collections.binarySearch(ids, id);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private void schedule(Subscription subscription) {
+        timer.schedule(() -> callbackExecutor.execute(() -> deliver(subscription)), eventLatencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void deliver(Subscription subscription) {
+        List<CityChange> changes;
+        synchronized (this) {
+            if (subscription.removed || (subscription.delivered && subscription.pending.isEmpty())) {
+                return;
+            }
+            subscription.delivered = true;
+            changes = subscription.pending;
+            subscription.pending = new ArrayList<>();
+        }
+        subscription.listener.onChanges(changes);
+    }
+
+    private void acknowledge(WriteCallback callback) {
+        if (callback != null) {
+            timer.schedule(() -> callbackExecutor.execute(() -> callback.onComplete(null)), ackLatencyMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
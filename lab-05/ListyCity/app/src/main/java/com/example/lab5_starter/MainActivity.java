@@ -2,6 +2,8 @@ package com.example.lab5_starter;
 
 import android.os.Bundle;
 import android.util.Log;
+import android.view.View;
+import android.widget.AbsListView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.ListView;
@@ -12,13 +14,9 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
-import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
 
 public class MainActivity extends AppCompatActivity implements CityDialogFragment.CityDialogListener {
 
@@ -27,9 +25,9 @@ public class MainActivity extends AppCompatActivity implements CityDialogFragmen
 
     private ArrayList<City> cityArrayList;
     private ArrayAdapter<City> cityArrayAdapter;
+    private CityWindow cityWindow;
 
-    private FirebaseFirestore db;
-    private CollectionReference citiesRef;
+    private CityRepository cityRepository;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -52,26 +50,46 @@ public class MainActivity extends AppCompatActivity implements CityDialogFragmen
         cityListView.setAdapter(cityArrayAdapter);
 
         // Firestore setup
-        db = FirebaseFirestore.getInstance();
-        citiesRef = db.collection("cities");
+        cityRepository = new FirestoreCityRepository(FirebaseFirestore.getInstance(), "cities");
+
+        // Snapshot listeners
+        // Only a window of pages around the visible rows is loaded and listened to,
+        // and only the changed documents are applied; the list is not rebuilt.
+        // Add/update/delete below go through the window, which shows them right away as pending
+        // and keeps them that way until the write is done, whatever snapshots arrive meanwhile.
+        cityWindow = new CityWindow(cityRepository, cityArrayList, new CityWindow.Listener() {
+            @Override
+            public void onWindowChanged(int shift) {
+                // keep the same rows on screen when pages come or go above them
+                int first = cityListView.getFirstVisiblePosition();
+                View top = cityListView.getChildAt(0);
+                cityArrayAdapter.notifyDataSetChanged();
+                if (shift != 0) {
+                    cityListView.setSelectionFromTop(Math.max(0, first + shift), top == null ? 0 : top.getTop());
+                }
+            }
 
-        // Firestore snapshot listener
-        citiesRef.addSnapshotListener((value, error) -> {
-            if (error != null) {
+            @Override
+            public void onError(Exception error) {
                 Log.e("Firestore", error.toString());
-                return;
             }
+        });
+        cityWindow.start();
 
-            if (value != null && !value.isEmpty()) {
-                cityArrayList.clear();
-                for (QueryDocumentSnapshot snapshot : value) {
-                    String name = snapshot.getString("name");
-                    String province = snapshot.getString("province");
-                    cityArrayList.add(new City(name, province));
-                }
+        // Load pages as the list nears either end of the window
+        cityListView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
             }
 
-            cityArrayAdapter.notifyDataSetChanged();
+            @Override
+            public void onScroll(AbsListView view, int firstVisible, int visibleCount, int totalCount) {
+                if (firstVisible + visibleCount >= totalCount - CityWindow.PAGE_SIZE / 2) {
+                    cityWindow.loadNext();
+                } else if (firstVisible < CityWindow.PAGE_SIZE / 2) {
+                    cityWindow.loadPrevious();
+                }
+            }
         });
 
         // Add city button
@@ -91,53 +109,53 @@ public class MainActivity extends AppCompatActivity implements CityDialogFragmen
         cityListView.setOnItemLongClickListener((adapterView, view, position, id) -> {
             City cityToDelete = cityArrayList.get(position);
 
-            // Delete from Firestore
-            citiesRef.document(cityToDelete.getName())
-                    .delete()
-                    .addOnSuccessListener(aVoid -> {
-                        Log.d("Firestore", "City successfully deleted!");
-                        // Delete locally
-                        cityArrayList.remove(position);
-                        cityArrayAdapter.notifyDataSetChanged();
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e("Firestore", "Error deleting city", e);
-                    });
+            // Delete from Firestore; the row goes away now
+            cityWindow.delete(cityToDelete.getName(), e -> {
+                if (e == null) {
+                    Log.d("Firestore", "City successfully deleted!");
+                } else {
+                    Log.e("Firestore", "Error deleting city", e);
+                }
+            });
 
             return true; // Long click handled
         });
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        cityWindow.stop();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // don't leave queued writes behind if the app is killed in the background
+        cityRepository.flush();
+    }
+
     @Override
     public void updateCity(City city, String title, String year) {
-        city.setName(title);
-        city.setProvince(year);
-        cityArrayAdapter.notifyDataSetChanged();
-
-        // Update Firestore
-        Map<String, Object> data = new HashMap<>();
-        data.put("name", city.getName());
-        data.put("province", city.getProvince());
-
-        citiesRef.document(city.getName())
-                .set(data)
-                .addOnSuccessListener(aVoid -> Log.d("Firestore", "City successfully updated!"))
-                .addOnFailureListener(e -> Log.e("Firestore", "Error updating city", e));
+        // Update Firestore; the row shows the change now
+        cityWindow.set(title, new City(title, year), e -> {
+            if (e == null) {
+                Log.d("Firestore", "City successfully updated!");
+            } else {
+                Log.e("Firestore", "Error updating city", e);
+            }
+        });
     }
 
     @Override
     public void addCity(City city){
-        cityArrayList.add(city);
-        cityArrayAdapter.notifyDataSetChanged();
-
-        // Update Firestore
-        Map<String, Object> data = new HashMap<>();
-        data.put("name", city.getName());
-        data.put("province", city.getProvince());
-
-        citiesRef.document(city.getName())
-                .set(data)
-                .addOnSuccessListener(aVoid -> Log.d("Firestore", "DocumentSnapshot successfully written!"))
-                .addOnFailureListener(e -> Log.e("Firestore", "Error writing document", e));
+        // Update Firestore; the row shows up now
+        cityWindow.set(city.getName(), city, e -> {
+            if (e == null) {
+                Log.d("Firestore", "DocumentSnapshot successfully written!");
+            } else {
+                Log.e("Firestore", "Error writing document", e);
+            }
+        });
     }
 }
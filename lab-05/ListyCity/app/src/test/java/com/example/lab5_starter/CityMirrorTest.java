@@ -0,0 +1,80 @@
+package com.example.lab5_starter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for applying snapshot changes to the mirrored city list.
+ */
+public class CityMirrorTest {
+
+    private final ArrayList<City> cities = new ArrayList<>();
+    private final CityMirror mirror = new CityMirror(cities);
+
+    private static CityChange added(String id, String province, int newIndex) {
+        return new CityChange(CityChange.Type.ADDED, id, id, province, -1, newIndex);
+    }
+
+    private List<String> names() {
+        List<String> names = new ArrayList<>();
+        for (City city : cities) {
+            names.add(city.getName() + " " + city.getProvince());
+        }
+        return names;
+    }
+
+    @Test
+    public void appliesChangesInOrderUsingTheirIndexes() {
+        mirror.apply(Arrays.asList(added("b", "AB", 0), added("d", "BC", 1), added("a", "SK", 0)));
+
+        // each index already counts the changes before it in the same snapshot
+        mirror.apply(Arrays.asList(
+                new CityChange(CityChange.Type.REMOVED, "b", "b", "AB", 1, -1),
+                added("c", "MB", 1),
+                new CityChange(CityChange.Type.MODIFIED, "d", "d", "ON", 2, 2)));
+
+        assertEquals(Arrays.asList("a SK", "c MB", "d ON"), names());
+        assertEquals("a", mirror.getId(0));
+        assertEquals("c", mirror.getId(1));
+        assertEquals("d", mirror.getId(2));
+    }
+
+    @Test
+    public void modifiedCityKeepsItsObject() {
+        mirror.apply(Collections.singletonList(added("a", "AB", 0)));
+        City shown = cities.get(0);
+
+        mirror.apply(Collections.singletonList(new CityChange(CityChange.Type.MODIFIED, "a", "a", "BC", 0, 0)));
+
+        assertSame(shown, cities.get(0));
+        assertSame(shown, mirror.getCity("a"));
+        assertEquals("BC", shown.getProvince());
+    }
+
+    @Test
+    public void modifiedCityMovesWhenItsIndexChanges() {
+        mirror.apply(Arrays.asList(added("a", "AB", 0), added("b", "BC", 1), added("c", "SK", 2)));
+
+        mirror.apply(Collections.singletonList(new CityChange(CityChange.Type.MODIFIED, "a", "a", "MB", 0, 2)));
+
+        assertEquals(Arrays.asList("b BC", "c SK", "a MB"), names());
+        assertEquals("a", mirror.getId(2));
+    }
+
+    @Test
+    public void removedCityIsForgotten() {
+        mirror.apply(Arrays.asList(added("a", "AB", 0), added("b", "BC", 1)));
+
+        mirror.apply(Collections.singletonList(new CityChange(CityChange.Type.REMOVED, "a", "a", "AB", 0, -1)));
+
+        assertEquals(Collections.singletonList("b BC"), names());
+        assertNull(mirror.getCity("a"));
+        assertFalse(mirror.apply(Collections.<CityChange>emptyList()));
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.lab5_starter;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for CityWindow against the in-memory repository: paging through the
+ * collection while cities are added and deleted, and reconciling the window's own writes
+ * with the snapshots that follow them.
+ */
+public class CityWindowTest {
+
+    private final ExecutorService main = Executors.newSingleThreadExecutor(); // stands in for the main thread
+    private final ArrayList<City> shown = new ArrayList<>(); // the adapter's list
+    private final TreeSet<String> stored = new TreeSet<>(); // ids the repository holds, for comparison
+    private int shifts; // sum of the shifts reported to the listener
+    private String anchor; // city whose row every reported shift must follow, null for none
+    private int anchorIndex; // where the anchor was shown after the previous change
+    private String shiftError; // first change whose shift did not follow the anchor
+    private InMemoryCityRepository repository;
+    private CityWindow window;
+
+    @After
+    public void stopMain() {
+        main.shutdownNow();
+    }
+
+    private static String id(int number) {
+        return String.format("C%04d", number);
+    }
+
+    private void onMain(Runnable task) throws Exception {
+        main.submit(task).get();
+    }
+
+    // Waits for events already on their way, and the ones they cause, to be handled
+    private void settle() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(20);
+            onMain(() -> { });
+        }
+    }
+
+    // What happens to writes made through the window
+    private enum Writes { SERVED, FAILED, HELD }
+
+    // Repository whose writes through the window never reach the server; they fail at once,
+    // or are never acknowledged at all
+    private class OfflineWrites implements CityRepository {
+        private final boolean fail;
+
+        OfflineWrites(boolean fail) {
+            this.fail = fail;
+        }
+
+        @Override
+        public Registration listen(ChangeListener listener) {
+            return repository.listen(listener);
+        }
+
+        @Override
+        public Registration listenPage(String startAfterId, int limit, ChangeListener listener) {
+            return repository.listenPage(startAfterId, limit, listener);
+        }
+
+        @Override
+        public Registration listenRange(String startAfterId, String endAtId, ChangeListener listener) {
+            return repository.listenRange(startAfterId, endAtId, listener);
+        }
+
+        @Override
+        public void set(String id, City city, WriteCallback callback) {
+            if (fail) {
+                main.execute(() -> callback.onComplete(new Exception("offline")));
+            }
+        }
+
+        @Override
+        public void delete(String id, WriteCallback callback) {
+            if (fail) {
+                main.execute(() -> callback.onComplete(new Exception("offline")));
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+
+    private void start(int cities, long ackLatencyMs) throws Exception {
+        start(cities, ackLatencyMs, Writes.SERVED);
+    }
+
+    private void start(int cities, long ackLatencyMs, Writes writes) throws Exception {
+        repository = new InMemoryCityRepository(main, 5, ackLatencyMs);
+        for (int i = 0; i < cities; i++) {
+            store(id(i * 2));
+        }
+        CityRepository windowRepository = writes == Writes.SERVED ? repository : new OfflineWrites(writes == Writes.FAILED);
+        onMain(() -> {
+            window = new CityWindow(windowRepository, shown, new CityWindow.Listener() {
+                @Override
+                public void onWindowChanged(int shift) {
+                    shifts += shift;
+                    int index = anchorIndexNow();
+                    if (anchor != null && index >= 0) {
+                        if (index != anchorIndex + shift && shiftError == null) {
+                            shiftError = anchor + " moved from " + anchorIndex + " to " + index + " but shift was " + shift;
+                        }
+                        anchorIndex = index;
+                    }
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    fail(error.toString());
+                }
+            });
+            window.start();
+        });
+        settle();
+    }
+
+    private int anchorIndexNow() {
+        for (int i = 0; i < shown.size(); i++) {
+            if (shown.get(i).getName().equals(anchor)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Makes every later change check that its shift keeps the given shown city in place
+    private void anchor(String id) throws Exception {
+        onMain(() -> {
+            anchor = id;
+            anchorIndex = anchorIndexNow();
+        });
+    }
+
+    private void store(String id) {
+        repository.set(id, new City(id, "AB"), null);
+        stored.add(id);
+    }
+
+    private void remove(String id) {
+        repository.delete(id, null);
+        stored.remove(id);
+    }
+
+    private List<String> names() throws Exception {
+        List<String> names = new ArrayList<>();
+        onMain(() -> {
+            for (City city : shown) {
+                names.add(city.getName() + (city.isPending() ? "*" : ""));
+            }
+        });
+        return names;
+    }
+
+    // The shown cities must be exactly the stored ones between the first and last shown
+    private void assertShowsContiguousRun() throws Exception {
+        List<String> names = names();
+        assertFalse(names.isEmpty());
+        List<String> expected = new ArrayList<>(stored.subSet(names.get(0), true, names.get(names.size() - 1), true));
+        assertEquals(expected, names);
+    }
+
+    private City shownCity(String id) throws Exception {
+        City[] found = new City[1];
+        onMain(() -> {
+            for (City city : shown) {
+                if (city.getName().equals(id)) {
+                    found[0] = city;
+                }
+            }
+        });
+        return found[0];
+    }
+
+    // Writes through the window, counting the write as stored like the repository will
+    private void set(String id, String province) throws Exception {
+        onMain(() -> window.set(id, new City(id, province), null));
+        stored.add(id);
+    }
+
+    private void delete(String id) throws Exception {
+        onMain(() -> window.delete(id, null));
+        stored.remove(id);
+    }
+
+    private void loadNext() throws Exception {
+        onMain(() -> window.loadNext());
+        settle();
+    }
+
+    private void loadPrevious() throws Exception {
+        onMain(() -> window.loadPrevious());
+        settle();
+    }
+
+    @Test
+    public void startsWithTheFirstPage() throws Exception {
+        start(120, 0);
+
+        List<String> names = names();
+        assertEquals(CityWindow.PAGE_SIZE, names.size());
+        assertEquals(id(0), names.get(0));
+        assertShowsContiguousRun();
+    }
+
+    @Test
+    public void loadNextAppendsPagesAndDropsTheTopBeyondMaxPages() throws Exception {
+        start(400, 0);
+        for (int page = 1; page <= CityWindow.MAX_PAGES; page++) {
+            loadNext();
+        }
+
+        List<String> names = names();
+        assertEquals(CityWindow.MAX_PAGES * CityWindow.PAGE_SIZE, names.size());
+        assertEquals(id(CityWindow.PAGE_SIZE * 2), names.get(0));
+        assertEquals(-CityWindow.PAGE_SIZE, shifts);
+        assertShowsContiguousRun();
+    }
+
+    @Test
+    public void pagesStayContiguousAcrossDeletesAndAdds() throws Exception {
+        start(300, 0);
+        loadNext();
+        String boundary = names().get(CityWindow.PAGE_SIZE - 1); // end of the first page's range
+
+        remove(boundary);
+        remove(id(10));
+        remove(id(CityWindow.PAGE_SIZE * 2 + 10));
+        store(id(11)); // odd ids fall between stored ones
+        store(id(CityWindow.PAGE_SIZE * 2 - 1));
+        settle();
+        assertShowsContiguousRun();
+
+        for (int page = 0; page < CityWindow.MAX_PAGES; page++) {
+            remove(names().get(names().size() - 1));
+            loadNext();
+            assertShowsContiguousRun();
+        }
+    }
+
+    @Test
+    public void loadPreviousBringsBackTheDroppedPage() throws Exception {
+        start(400, 0);
+        for (int page = 1; page <= CityWindow.MAX_PAGES; page++) {
+            loadNext();
+        }
+        String top = names().get(0);
+        remove(id(20)); // deleted while its page was not listened to
+        settle();
+        anchor(top);
+
+        loadPrevious();
+
+        List<String> names = names();
+        assertEquals(id(0), names.get(0));
+        assertEquals(CityWindow.PAGE_SIZE - 1, names.indexOf(top));
+        assertNull(shiftError);
+        assertShowsContiguousRun();
+    }
+
+    @Test
+    public void emptyCollectionShowsNothingAndDoesNotPage() throws Exception {
+        start(0, 0);
+        loadNext();
+        loadPrevious();
+
+        assertTrue(names().isEmpty());
+    }
+
+    @Test
+    public void writesShowAtOnceAsPendingUntilAcknowledged() throws Exception {
+        start(100, 300);
+
+        set(id(11), "BC");
+        set(id(4), "SK");
+        delete(id(6));
+        List<String> names = names();
+        assertTrue(names.contains(id(11) + "*"));
+        assertTrue(names.contains(id(4) + "*"));
+        assertFalse(names.contains(id(6)));
+
+        Thread.sleep(400);
+        settle();
+        names = names();
+        assertTrue(names.contains(id(11)));
+        assertEquals("SK", shownCity(id(4)).getProvince());
+        assertFalse(shownCity(id(4)).isPending());
+        assertShowsContiguousRun();
+    }
+
+    @Test
+    public void snapshotsOfAPendingCityLeaveItsRowUntilTheWriteIsDone() throws Exception {
+        start(100, 300);
+
+        set(id(8), "BC");
+        repository.set(id(8), new City(id(8), "SK"), null); // another client writes after us
+        settle();
+        assertEquals("BC", shownCity(id(8)).getProvince());
+        assertTrue(shownCity(id(8)).isPending());
+
+        // once our write is done the row shows what the server has
+        Thread.sleep(400);
+        settle();
+        assertEquals("SK", shownCity(id(8)).getProvince());
+        assertFalse(shownCity(id(8)).isPending());
+    }
+
+    @Test
+    public void failedWritesDropTheirPendingChange() throws Exception {
+        start(100, 0, Writes.FAILED);
+
+        onMain(() -> {
+            window.set(id(11), new City(id(11), "BC"), null);
+            window.set(id(4), new City(id(4), "SK"), null);
+            window.delete(id(6), null);
+            // still pending: the failures are queued behind this task
+            assertEquals(CityWindow.PAGE_SIZE, shown.size());
+        });
+        settle();
+
+        assertNull(shownCity(id(11)));
+        assertEquals("AB", shownCity(id(4)).getProvince());
+        assertFalse(shownCity(id(4)).isPending());
+        assertNotNull(shownCity(id(6)));
+        assertShowsContiguousRun();
+    }
+
+    @Test
+    public void pendingCityPastAFullPageShowsOnceItsPageLoads() throws Exception {
+        start(120, 5000);
+        String last = names().get(CityWindow.PAGE_SIZE - 1);
+
+        set(id(99), "BC"); // after the last city of the full first page
+        settle();
+        assertEquals(last, names().get(names().size() - 1));
+
+        loadNext();
+        assertTrue(names().contains(id(99) + "*"));
+        // the server has it too, so it is one of the second page's cities
+        assertEquals(2 * CityWindow.PAGE_SIZE, names().size());
+    }
+
+    @Test
+    public void loadPreviousShiftCountsPendingRowsOfTheRangeOnce() throws Exception {
+        start(400, 0, Writes.HELD);
+        for (int page = 1; page <= CityWindow.MAX_PAGES; page++) {
+            loadNext();
+        }
+        String top = names().get(0);
+        // writes the server has not seen, above the window: not shown yet
+        set(id(21), "BC");
+        delete(id(22));
+        settle();
+        assertEquals(top, names().get(0));
+        anchor(top);
+
+        loadPrevious();
+
+        List<String> names = names();
+        assertTrue(names.contains(id(21) + "*"));
+        assertFalse(names.contains(id(22)));
+        assertEquals(CityWindow.PAGE_SIZE, names.indexOf(top));
+        assertNull(shiftError);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.lab5_starter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the write coalescing behind CityWriteBatcher.
+ */
+public class CityWriteQueueTest {
+
+    private static Map<String, Object> province(String province) {
+        return Collections.singletonMap("Province", province);
+    }
+
+    @Test
+    public void laterWriteToSameDocumentReplacesDataButKeepsEveryWaiter() {
+        CityWriteQueue<String> queue = new CityWriteQueue<>();
+        assertTrue(queue.add("Edmonton", province("AB"), "first"));
+        assertFalse(queue.add("Edmonton", province("Alberta"), "second"));
+
+        List<List<CityWriteQueue.Write<String>>> batches = queue.drain(500);
+
+        assertEquals(1, batches.size());
+        CityWriteQueue.Write<String> write = batches.get(0).get(0);
+        assertEquals(province("Alberta"), write.data);
+        assertEquals(Arrays.asList("first", "second"), write.waiting);
+    }
+
+    @Test
+    public void deleteAfterSetLeavesOnlyTheDelete() {
+        CityWriteQueue<String> queue = new CityWriteQueue<>();
+        queue.add("Calgary", province("AB"), "set");
+        queue.add("Calgary", null, "delete");
+
+        CityWriteQueue.Write<String> write = queue.drain(500).get(0).get(0);
+
+        assertNull(write.data);
+        assertEquals(Arrays.asList("set", "delete"), write.waiting);
+    }
+
+    @Test
+    public void drainKeepsFirstWrittenOrderAndSplitsIntoBatches() {
+        CityWriteQueue<String> queue = new CityWriteQueue<>();
+        for (String id : new String[]{"c", "a", "d", "b", "e"}) {
+            queue.add(id, province("AB"), id);
+        }
+        queue.add("a", province("BC"), "a again"); // keeps a's place
+
+        List<List<CityWriteQueue.Write<String>>> batches = queue.drain(2);
+
+        assertEquals(3, batches.size());
+        assertEquals("c", batches.get(0).get(0).id);
+        assertEquals("a", batches.get(0).get(1).id);
+        assertEquals("d", batches.get(1).get(0).id);
+        assertEquals("b", batches.get(1).get(1).id);
+        assertEquals("e", batches.get(2).get(0).id);
+    }
+
+    @Test
+    public void drainEmptiesTheQueueSoTheNextWriteStartsANewWindow() {
+        CityWriteQueue<String> queue = new CityWriteQueue<>();
+        queue.add("Regina", province("SK"), "one");
+        queue.drain(500);
+
+        assertEquals(0, queue.size());
+        assertTrue(queue.drain(500).isEmpty());
+        assertTrue(queue.add("Regina", province("SK"), "two"));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.lab5_starter;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the in-memory stand-in for Firestore: snapshot events for whole-collection,
+ * page, and range listeners, and write acknowledgements.
+ */
+public class InMemoryCityRepositoryTest {
+
+    private final ExecutorService main = Executors.newSingleThreadExecutor(); // stands in for the main thread
+
+    // Collects every event a listener receives, as "TYPE id old->new" strings
+    private static class Events implements CityRepository.ChangeListener {
+        final BlockingQueue<List<String>> received = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onChanges(List<CityChange> changes) {
+            List<String> event = new ArrayList<>();
+            for (CityChange change : changes) {
+                event.add(change.getType() + " " + change.getId() + " " + change.getOldIndex() + "->" + change.getNewIndex());
+            }
+            received.add(event);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            fail(error.toString());
+        }
+
+        List<String> next() throws InterruptedException {
+            List<String> event = received.poll(2, TimeUnit.SECONDS);
+            assertNotNull("no event arrived", event);
+            return event;
+        }
+    }
+
+    @After
+    public void stopMain() {
+        main.shutdownNow();
+    }
+
+    private InMemoryCityRepository repository(long eventLatencyMs, String... ids) {
+        InMemoryCityRepository repository = new InMemoryCityRepository(main, eventLatencyMs, 0);
+        for (String id : ids) {
+            repository.set(id, new City(id, "AB"), null);
+        }
+        return repository;
+    }
+
+    @Test
+    public void newListenerGetsEveryCityAsAddedInIdOrder() throws InterruptedException {
+        InMemoryCityRepository repository = repository(0, "c", "a", "b");
+        Events events = new Events();
+        repository.listen(events);
+
+        assertEquals(Arrays.asList("ADDED a -1->0", "ADDED b -1->1", "ADDED c -1->2"), events.next());
+    }
+
+    @Test
+    public void emptyCollectionStillDeliversFirstEvent() throws InterruptedException {
+        Events events = new Events();
+        repository(0).listen(events);
+
+        assertEquals(new ArrayList<String>(), events.next());
+    }
+
+    @Test
+    public void writesArriveAsChangesWithTheirIndexes() throws InterruptedException {
+        InMemoryCityRepository repository = repository(0, "a", "c");
+        Events events = new Events();
+        repository.listen(events);
+        events.next();
+
+        repository.set("b", new City("b", "BC"), null);
+        assertEquals(Arrays.asList("ADDED b -1->1"), events.next());
+        repository.set("c", new City("c", "SK"), null);
+        assertEquals(Arrays.asList("MODIFIED c 2->2"), events.next());
+        repository.delete("a", null);
+        assertEquals(Arrays.asList("REMOVED a 0->-1"), events.next());
+        repository.delete("missing", null);
+        assertNull(events.received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void pageListenerPushesCitiesOutAndPullsThemIn() throws InterruptedException {
+        InMemoryCityRepository repository = repository(0, "a", "c", "d");
+        Events events = new Events();
+        repository.listenPage(null, 2, events);
+        assertEquals(Arrays.asList("ADDED a -1->0", "ADDED c -1->1"), events.next());
+
+        repository.set("b", new City("b", "BC"), null);
+        assertEquals(Arrays.asList("ADDED b -1->1", "REMOVED c 2->-1"), events.next());
+        repository.delete("a", null);
+        assertEquals(Arrays.asList("REMOVED a 0->-1", "ADDED c -1->1"), events.next());
+        repository.set("e", new City("e", "MB"), null); // past the end of the full page
+        assertNull(events.received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void rangeListenerOnlySeesItsIds() throws InterruptedException {
+        InMemoryCityRepository repository = repository(0, "a", "b", "c", "d");
+        Events events = new Events();
+        repository.listenRange("a", "c", events);
+        assertEquals(Arrays.asList("ADDED b -1->0", "ADDED c -1->1"), events.next());
+
+        repository.set("a", new City("a", "BC"), null);
+        repository.set("e", new City("e", "BC"), null);
+        repository.set("bb", new City("bb", "BC"), null);
+        assertEquals(Arrays.asList("ADDED bb -1->1"), events.next());
+    }
+
+    @Test
+    public void changesMadeWhileAnEventIsOnItsWayArriveTogether() throws InterruptedException {
+        InMemoryCityRepository repository = repository(200);
+        Events events = new Events();
+        repository.listen(events);
+        events.next();
+
+        repository.set("a", new City("a", "AB"), null);
+        repository.set("b", new City("b", "AB"), null);
+        repository.delete("a", null);
+
+        assertEquals(Arrays.asList("ADDED a -1->0", "ADDED b -1->1", "REMOVED a 0->-1"), events.next());
+    }
+
+    @Test
+    public void removedListenerGetsNothingMoreAndWritesAreAcknowledged() throws InterruptedException {
+        InMemoryCityRepository repository = repository(0, "a");
+        Events events = new Events();
+        CityRepository.Registration registration = repository.listen(events);
+        events.next();
+        registration.remove();
+
+        BlockingQueue<String> acks = new LinkedBlockingQueue<>();
+        repository.set("b", new City("b", "AB"), error -> acks.add(String.valueOf(error)));
+        repository.delete("a", error -> acks.add(String.valueOf(error)));
+
+        assertEquals("null", acks.poll(2, TimeUnit.SECONDS));
+        assertEquals("null", acks.poll(2, TimeUnit.SECONDS));
+        assertNull(events.received.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, repository.size());
+    }
+}
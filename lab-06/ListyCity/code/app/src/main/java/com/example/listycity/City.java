@@ -1,5 +1,7 @@
 package com.example.listycity;
 
+import java.util.Objects;
+
 /**
  * Represents a city with its name and province.
  * <p>
@@ -50,14 +52,51 @@ public class City implements Comparable<City> {
 
     /**
      * Compares this City object with another City object for order.
-     * Cities are compared lexicographically by their city name.
+     * Cities are compared lexicographically by their city name; cities with the
+     * same name are then ordered by province name, so that the ordering agrees
+     * with {@link #equals(Object)}.
      *
      * @param other the other City object to compare to
-     * @return a negative integer, zero, or a positive integer as this city's
-     *         name is less than, equal to, or greater than the specified city's name
+     * @return a negative integer, zero, or a positive integer as this city
+     *         comes before, is the same as, or comes after the specified city
      */
     @Override
     public int compareTo(City other) {
-        return this.city.compareTo(other.getCityName());
+        int result = this.city.compareTo(other.getCityName());
+        if (result != 0) {
+            return result;
+        }
+        return this.province.compareTo(other.getProvinceName());
+    }
+
+    /**
+     * Checks whether this City represents the same place as another object.
+     * Two cities are equal when both their city names and province names match.
+     *
+     * @param o the object to compare with
+     * @return true if the other object is a City with the same name and province
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof City)) {
+            return false;
+        }
+        City other = (City) o;
+        return Objects.equals(this.city, other.city)
+                && Objects.equals(this.province, other.province);
+    }
+
+    /**
+     * Returns a hash code built from the city name and province name,
+     * consistent with {@link #equals(Object)}.
+     *
+     * @return the hash code of this City
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(city, province);
     }
 }
@@ -0,0 +1,244 @@
+package com.example.listycity;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads cities into a {@link CityList} from CSV data with one "name,province" row per line.
+ * <p>
+ * The input is read one line at a time, so the raw file is never held in memory, only the
+ * cities accepted so far. Each row is checked once against the list's current contents and
+ * against the rows before it, and rows that cannot be added are reported instead of stopping
+ * the import. The accepted cities are then added with {@link CityList#addAll}, so the list
+ * changes once, after the whole input was read, and not at all if reading fails.
+ * </p>
+ * <p>
+ * Fields may be wrapped in double quotes to contain commas (e.g., {@code "Lake Louise, AB"}),
+ * with {@code ""} standing for a quote inside a quoted field. Blank lines are skipped. Rows
+ * cannot span several lines.
+ * </p>
+ */
+public class CityCsvImporter {
+
+    /**
+     * Largest number of rejected rows kept in a {@link Result}; later ones are only counted.
+     */
+    public static final int MAX_REPORTED_REJECTIONS = 1000;
+
+    /**
+     * Why a row was not imported.
+     */
+    public enum Reason {
+        /**
+         * The row does not have exactly two non-empty fields.
+         */
+        MALFORMED,
+        /**
+         * The same city appears on an earlier row of the input.
+         */
+        DUPLICATE_IN_BATCH,
+        /**
+         * The city was already in the list before the import.
+         */
+        ALREADY_IN_LIST
+    }
+
+    /**
+     * A row of the input that was not imported.
+     */
+    public static class Rejection {
+        private final long lineNumber;
+        private final String line;
+        private final Reason reason;
+
+        Rejection(long lineNumber, String line, Reason reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        /**
+         * Returns the line number of the row, starting at 1.
+         *
+         * @return the row's line number
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Returns the row as it appeared in the input.
+         *
+         * @return the raw row text
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * Returns why the row was not imported.
+         *
+         * @return the reason for the rejection
+         */
+        public Reason getReason() {
+            return reason;
+        }
+    }
+
+    /**
+     * The outcome of one import.
+     */
+    public static class Result {
+        private final int added;
+        private final long rejectedCount;
+        private final List<Rejection> rejections;
+
+        Result(int added, long rejectedCount, List<Rejection> rejections) {
+            this.added = added;
+            this.rejectedCount = rejectedCount;
+            this.rejections = Collections.unmodifiableList(rejections);
+        }
+
+        /**
+         * Returns the number of cities added to the list.
+         *
+         * @return the number of imported cities
+         */
+        public int getAddedCount() {
+            return added;
+        }
+
+        /**
+         * Returns the number of rows that were not imported.
+         *
+         * @return the number of rejected rows
+         */
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        /**
+         * Returns the rejected rows, in input order. At most
+         * {@link #MAX_REPORTED_REJECTIONS} rows are kept; see {@link #getRejectedCount()}
+         * for the full number.
+         *
+         * @return the first rejected rows
+         */
+        public List<Rejection> getRejections() {
+            return rejections;
+        }
+    }
+
+    private final CityList cityList;
+
+    /**
+     * Constructs an importer that adds cities to the given list.
+     *
+     * @param cityList the list to import into
+     */
+    public CityCsvImporter(CityList cityList) {
+        this.cityList = cityList;
+    }
+
+    /**
+     * Imports the cities in a CSV file.
+     *
+     * @param file a UTF-8 CSV file with one "name,province" row per line
+     * @return the number of imported cities and the rejected rows
+     * @throws IOException if the file cannot be read; the list is then left unchanged
+     */
+    public Result importFrom(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return importFrom(in);
+        }
+    }
+
+    /**
+     * Imports the cities in a CSV stream. The stream is read to the end but not closed.
+     *
+     * @param in UTF-8 CSV data with one "name,province" row per line
+     * @return the number of imported cities and the rejected rows
+     * @throws IOException if the stream cannot be read; the list is then left unchanged
+     */
+    public Result importFrom(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Set<City> batch = new LinkedHashSet<>();
+        List<Rejection> rejections = new ArrayList<>();
+        long rejectedCount = 0;
+        long lineNumber = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            Reason reason;
+            City city = parse(line);
+            if (city == null) {
+                reason = Reason.MALFORMED;
+            } else if (cityList.hasCity(city)) {
+                reason = Reason.ALREADY_IN_LIST;
+            } else if (!batch.add(city)) {
+                reason = Reason.DUPLICATE_IN_BATCH;
+            } else {
+                continue;
+            }
+            rejectedCount++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(new Rejection(lineNumber, line, reason));
+            }
+        }
+
+        cityList.addAll(batch);
+        return new Result(batch.size(), rejectedCount, rejections);
+    }
+
+    /**
+     * Parses one row into a City.
+     *
+     * @param line the row text
+     * @return the city, or null if the row does not have exactly two non-empty fields
+     */
+    static City parse(String line) {
+        List<String> fields = new ArrayList<>(2);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+
+        if (quoted || fields.size() != 2 || fields.get(0).isEmpty() || fields.get(1).isEmpty()) {
+            return null;
+        }
+        return new City(fields.get(0), fields.get(1));
+    }
+}
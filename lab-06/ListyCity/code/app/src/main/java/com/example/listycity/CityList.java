@@ -1,14 +1,47 @@
 package com.example.listycity;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * This is a class that keeps a list of City objects.
+ * <p>
+ * Cities are kept in a balanced tree ordered by name, so the sorted order is
+ * maintained as cities are added and deleted instead of being rebuilt on every
+ * read. A hash index of the same cities answers duplicate checks and lookups in
+ * constant expected time, and a secondary index groups the cities by province
+ * so that per-province queries never look at other provinces.
+ * </p>
  */
 public class CityList {
-    private List<City> cities = new ArrayList<>();
+    /**
+     * Cities in sorted order (see {@link City#compareTo(City)}).
+     */
+    private NavigableSet<City> cities = new TreeSet<>();
+
+    /**
+     * Hash index over {@link #cities}, used for membership checks.
+     */
+    private Set<City> index = new HashSet<>();
+
+    /**
+     * Secondary index from each province name to that province's cities, in sorted order.
+     * Provinces without any cities are removed from the map.
+     */
+    private Map<String, NavigableSet<City>> provinces = new HashMap<>();
+
+    /**
+     * Read-only sorted copy handed out by {@link #getCities()}; cleared on every change.
+     */
+    private List<City> snapshot;
 
     /**
      * Adds a City to the list if it does not already exist.
@@ -17,21 +50,97 @@ public class CityList {
      * @throws IllegalArgumentException if the city already exists in the list
      */
     public void add(City city) {
-        if (cities.contains(city)) {
+        if (index.contains(city)) {
             throw new IllegalArgumentException();
         }
+        insert(city);
+        snapshot = null;
+    }
+
+    /**
+     * Adds a batch of cities as one change.
+     * <p>
+     * Either every city in the batch is added, or, if any of them is already in the
+     * list or appears twice in the batch, none of them are. The sorted list returned
+     * by {@link #getCities()} is rebuilt once for the whole batch.
+     * </p>
+     *
+     * @param batch the City objects to add
+     * @throws IllegalArgumentException if a city is already in the list or appears
+     *                                  more than once in the batch
+     */
+    public void addAll(Collection<City> batch) {
+        Set<City> seen = new HashSet<>();
+        for (City city : batch) {
+            if (index.contains(city) || !seen.add(city)) {
+                throw new IllegalArgumentException();
+            }
+        }
+        for (City city : batch) {
+            insert(city);
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Puts a city that is known not to be in the list into every index.
+     */
+    private void insert(City city) {
+        index.add(city);
         cities.add(city);
+        NavigableSet<City> province = provinces.get(city.getProvinceName());
+        if (province == null) {
+            province = new TreeSet<>();
+            provinces.put(city.getProvinceName(), province);
+        }
+        province.add(city);
     }
 
     /**
      * Returns a sorted list of City objects.
+     * <p>
+     * The returned list is read-only. It is built once after each change to the
+     * list and shared between calls, so repeated calls without changes in between
+     * do not copy or sort anything.
+     * </p>
      *
-     * @return a list of cities sorted alphabetically by city name
+     * @return a read-only list of cities sorted alphabetically by city name
      */
     public List<City> getCities() {
-        List<City> list = cities;
-        Collections.sort(list);
-        return list;
+        if (snapshot == null) {
+            snapshot = Collections.unmodifiableList(new ArrayList<>(cities));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the cities whose names start with the given prefix, in sorted order.
+     * <p>
+     * The lookup jumps straight to the first matching name in the sorted tree and
+     * stops after the last match or after {@code limit} results, so its cost depends
+     * on the prefix and the number of results rather than on the size of the list.
+     * Matching is case-sensitive.
+     * </p>
+     *
+     * @param prefix the start of the city names to look for (e.g., "Ed")
+     * @param limit  the maximum number of cities to return
+     * @return at most {@code limit} matching cities sorted by city name
+     * @throws IllegalArgumentException if limit is negative
+     */
+    public List<City> findByPrefix(String prefix, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException();
+        }
+        List<City> matches = new ArrayList<>();
+        // "" is the smallest province name, so this is the first city named prefix or later
+        City first = new City(prefix, "");
+        for (City city : cities.tailSet(first, true)) {
+            if (matches.size() == limit || !city.getCityName().startsWith(prefix)) {
+                break;
+            }
+            matches.add(city);
+        }
+        return matches;
     }
 
     /**
@@ -41,7 +150,7 @@ public class CityList {
      * @return true if the city exists in the list, false otherwise
      */
     public boolean hasCity(City city) {
-        return cities.contains(city);
+        return index.contains(city);
     }
 
     /**
@@ -54,10 +163,16 @@ public class CityList {
      * @throws IllegalArgumentException if the city is not found in the list
      */
     public void delete(City city) {
-        if (!cities.contains(city)) {
+        if (!index.remove(city)) {
             throw new IllegalArgumentException();
         }
         cities.remove(city);
+        NavigableSet<City> province = provinces.get(city.getProvinceName());
+        province.remove(city);
+        if (province.isEmpty()) {
+            provinces.remove(city.getProvinceName());
+        }
+        snapshot = null;
     }
 
     /**
@@ -66,6 +181,68 @@ public class CityList {
      * @return the total count of cities
      */
     public int countCities() {
-        return cities.size();
+        return index.size();
+    }
+
+    /**
+     * Returns the cities of one province, sorted by city name.
+     *
+     * @param province the name of the province (e.g., "Alberta")
+     * @return the province's cities sorted alphabetically by city name;
+     *         empty if the province has no cities in the list
+     */
+    public List<City> getCitiesInProvince(String province) {
+        NavigableSet<City> inProvince = provinces.get(province);
+        if (inProvince == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(inProvince);
+    }
+
+    /**
+     * Returns the cities of one province whose names fall in a range, sorted by city name.
+     *
+     * @param province the name of the province (e.g., "Alberta")
+     * @param fromName the lowest city name to include
+     * @param toName   the city name to stop before (not included)
+     * @return the province's cities with names from {@code fromName} (inclusive)
+     *         to {@code toName} (exclusive), sorted alphabetically by city name
+     * @throws IllegalArgumentException if fromName comes after toName
+     */
+    public List<City> getCitiesInProvince(String province, String fromName, String toName) {
+        if (fromName.compareTo(toName) > 0) {
+            throw new IllegalArgumentException();
+        }
+        NavigableSet<City> inProvince = provinces.get(province);
+        if (inProvince == null) {
+            return new ArrayList<>();
+        }
+        City from = new City(fromName, province);
+        City to = new City(toName, province);
+        return new ArrayList<>(inProvince.subSet(from, true, to, false));
+    }
+
+    /**
+     * Returns the number of cities in one province.
+     *
+     * @param province the name of the province (e.g., "Alberta")
+     * @return the number of cities in that province, 0 if it has none
+     */
+    public int countCitiesInProvince(String province) {
+        NavigableSet<City> inProvince = provinces.get(province);
+        return inProvince == null ? 0 : inProvince.size();
+    }
+
+    /**
+     * Returns the number of cities in every province that has at least one city.
+     *
+     * @return a map from province name to its number of cities
+     */
+    public Map<String, Integer> getProvinceCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, NavigableSet<City>> entry : provinces.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().size());
+        }
+        return counts;
     }
 }
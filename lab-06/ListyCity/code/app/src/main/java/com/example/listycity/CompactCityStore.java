@@ -0,0 +1,442 @@
+package com.example.listycity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A memory-compact, append-only copy of a city set, for keeping or handing on a large,
+ * mostly read-only set of cities in less memory than City objects take.
+ * <p>
+ * The store is an export format, not a backing store: {@link #of(Collection)} copies the
+ * cities, and a {@link CityList} it was built from keeps all of its own City objects. Memory
+ * only goes down once the City objects are no longer referenced, e.g. when the CityList is
+ * dropped after the export.
+ * </p>
+ * <p>
+ * Instead of one City object and its String objects per city, the store keeps:
+ * </p>
+ * <ul>
+ *   <li>every city name packed one after another into a single shared {@code char[]},
+ *       with an {@code int} offset per city marking where its name starts;</li>
+ *   <li>a {@code short} code per city for its province, indexing a dictionary that holds
+ *       each distinct province name only once;</li>
+ *   <li>an open-addressing hash table of city positions for {@link #contains(City)}.</li>
+ * </ul>
+ * <p>
+ * City objects are only created when one is asked for with {@link #get(int)}.
+ * {@link #memoryReport()} compares the estimated size of the store with that of the
+ * same cities held as City objects, not counting the collection holding them.
+ * </p>
+ * <p>
+ * Measured with {@code CityMemoryHarness} in the benchmarks module (heap deltas after full
+ * GCs, HotSpot 17 with compressed references, cities named "City 0" to "City 999999" in
+ * 13 provinces): the City objects take 84 bytes per city in an ArrayList, a CityList holding
+ * them takes 209 bytes per city in total (its tree set, hash set, province index and cached
+ * copy add 124), and the store takes 48.5 bytes per city, the same as memoryReport()
+ * estimates. With 100,000 cities the numbers are 85, 212 and 40. ART lays objects out
+ * differently, so the numbers on a device will differ somewhat.
+ * </p>
+ */
+public class CompactCityStore {
+    /**
+     * Largest number of distinct provinces a store can hold.
+     */
+    public static final int MAX_PROVINCES = 1 << 16;
+
+    /**
+     * Province names, indexed by province code.
+     */
+    private final List<String> provinceNames = new ArrayList<>();
+
+    /**
+     * Province codes, indexed by province name.
+     */
+    private final Map<String, Integer> provinceCodes = new HashMap<>();
+
+    /**
+     * All city names, one after another.
+     */
+    private char[] names = new char[256];
+
+    /**
+     * Number of chars of {@link #names} in use.
+     */
+    private int namesLength;
+
+    /**
+     * Where each city's name starts in {@link #names}; {@code nameStarts[size]} is the end of the last name.
+     */
+    private int[] nameStarts = new int[17];
+
+    /**
+     * Province code of each city, stored as an unsigned short.
+     */
+    private short[] provinces = new short[16];
+
+    /**
+     * Open-addressing hash table holding {@code position + 1} of each city; 0 marks an empty slot.
+     * Its length is always a power of two.
+     */
+    private int[] table = new int[32];
+
+    private int size;
+
+    /**
+     * Creates a store holding the given cities, in iteration order.
+     *
+     * @param cities the cities to store, e.g. {@code cityList.getCities()}
+     * @return a new store with the cities
+     * @throws IllegalArgumentException if a city appears more than once
+     */
+    public static CompactCityStore of(Collection<City> cities) {
+        CompactCityStore store = new CompactCityStore();
+        for (City city : cities) {
+            store.add(city);
+        }
+        return store;
+    }
+
+    /**
+     * Appends a city to the store.
+     *
+     * @param city the City object to add
+     * @return the position of the city in the store
+     * @throws IllegalArgumentException if the city is already in the store,
+     *                                  or the store already holds {@link #MAX_PROVINCES} provinces
+     */
+    public int add(City city) {
+        if (contains(city)) {
+            throw new IllegalArgumentException();
+        }
+        int code = provinceCode(city.getProvinceName());
+
+        String name = city.getCityName();
+        if (size + 1 == provinces.length) {
+            provinces = Arrays.copyOf(provinces, provinces.length * 2);
+            nameStarts = Arrays.copyOf(nameStarts, nameStarts.length * 2);
+        }
+        if (namesLength + name.length() > names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + name.length()));
+        }
+        name.getChars(0, name.length(), names, namesLength);
+        namesLength += name.length();
+
+        int position = size;
+        provinces[position] = (short) code;
+        nameStarts[position + 1] = namesLength;
+        size++;
+
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        insertIntoTable(position);
+        return position;
+    }
+
+    /**
+     * Returns the city at a position, as a new City object.
+     *
+     * @param position the city's position, from 0 to {@code size() - 1}
+     * @return the city at that position
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public City get(int position) {
+        return new City(getCityName(position), getProvinceName(position));
+    }
+
+    /**
+     * Returns the name of the city at a position.
+     *
+     * @param position the city's position, from 0 to {@code size() - 1}
+     * @return the city's name
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public String getCityName(int position) {
+        checkPosition(position);
+        int start = nameStarts[position];
+        return new String(names, start, nameStarts[position + 1] - start);
+    }
+
+    /**
+     * Returns the province name of the city at a position. The same String object is
+     * returned for every city in that province.
+     *
+     * @param position the city's position, from 0 to {@code size() - 1}
+     * @return the city's province name
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public String getProvinceName(int position) {
+        checkPosition(position);
+        return provinceNames.get(provinces[position] & 0xFFFF);
+    }
+
+    /**
+     * Checks whether a city is in the store, without creating any objects.
+     *
+     * @param city the City object to check
+     * @return true if the city is in the store, false otherwise
+     */
+    public boolean contains(City city) {
+        Integer code = provinceCodes.get(city.getProvinceName());
+        if (code == null) {
+            return false;
+        }
+        String name = city.getCityName();
+        int mask = table.length - 1;
+        for (int slot = hash(name, code) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int position = table[slot] - 1;
+            if ((provinces[position] & 0xFFFF) == code && nameEquals(position, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of cities in the store.
+     *
+     * @return the total count of cities
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of distinct provinces in the store.
+     *
+     * @return the number of provinces
+     */
+    public int countProvinces() {
+        return provinceNames.size();
+    }
+
+    /**
+     * Estimates the memory used by this store and by the same cities held as City objects.
+     * The City objects are assumed to share one String per province, so the estimate for
+     * them is a lower bound when every city has its own province String.
+     *
+     * @return the memory estimate
+     */
+    public MemoryReport memoryReport() {
+        long nameChars = namesLength;
+        long latin1Chars = 0;
+        for (int i = 0; i < namesLength; i++) {
+            if (names[i] < 256) {
+                latin1Chars++;
+            }
+        }
+        // before: a City plus its own name String for every city, and one String per distinct
+        // province, as if the cities of a province shared it (e.g. a literal or an interned String)
+        long before = size * (long) CITY_OBJECT;
+        for (int i = 0; i < size; i++) {
+            before += stringBytes(nameStarts[i + 1] - nameStarts[i], isLatin1(i));
+        }
+        for (String province : provinceNames) {
+            before += stringBytes(province.length(), isLatin1(province));
+        }
+
+        // after: the arrays actually allocated, plus one String per distinct province
+        long after = arrayBytes(names.length, 2)
+                + arrayBytes(nameStarts.length, 4)
+                + arrayBytes(provinces.length, 2)
+                + arrayBytes(table.length, 4);
+        for (String province : provinceNames) {
+            // the String, a dictionary entry and a list slot
+            after += stringBytes(province.length(), isLatin1(province)) + HASH_ENTRY + REFERENCE;
+        }
+        return new MemoryReport(size, nameChars, latin1Chars, before, after);
+    }
+
+    /**
+     * Estimated memory use of a set of cities, in bytes.
+     * <p>
+     * The numbers assume a 64-bit VM with compressed references, 12-byte object headers,
+     * 16-byte array headers, 8-byte alignment and compact (one byte per char) strings for
+     * Latin-1 text. They are estimates, not measurements; the class description gives
+     * measured numbers.
+     * </p>
+     */
+    public static class MemoryReport {
+        private final int cityCount;
+        private final long nameChars;
+        private final long latin1NameChars;
+        private final long bytesAsObjects;
+        private final long bytesCompact;
+
+        MemoryReport(int cityCount, long nameChars, long latin1NameChars,
+                     long bytesAsObjects, long bytesCompact) {
+            this.cityCount = cityCount;
+            this.nameChars = nameChars;
+            this.latin1NameChars = latin1NameChars;
+            this.bytesAsObjects = bytesAsObjects;
+            this.bytesCompact = bytesCompact;
+        }
+
+        /**
+         * Returns the number of cities the report covers.
+         *
+         * @return the city count
+         */
+        public int getCityCount() {
+            return cityCount;
+        }
+
+        /**
+         * Returns the estimated bytes used by the cities as City objects, each with its own name
+         * String and sharing one String per province.
+         *
+         * @return the estimated size before compaction
+         */
+        public long getBytesAsObjects() {
+            return bytesAsObjects;
+        }
+
+        /**
+         * Returns the estimated bytes used by the compact store.
+         *
+         * @return the estimated size after compaction
+         */
+        public long getBytesCompact() {
+            return bytesCompact;
+        }
+
+        /**
+         * Returns the estimated bytes per city as City objects.
+         *
+         * @return bytes per city before compaction, 0 for an empty store
+         */
+        public double getBytesPerCityAsObjects() {
+            return cityCount == 0 ? 0 : (double) bytesAsObjects / cityCount;
+        }
+
+        /**
+         * Returns the estimated bytes per city in the compact store.
+         *
+         * @return bytes per city after compaction, 0 for an empty store
+         */
+        public double getBytesPerCityCompact() {
+            return cityCount == 0 ? 0 : (double) bytesCompact / cityCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d cities (%d name chars, %d Latin-1): %.1f bytes/city as objects, "
+                            + "%.1f bytes/city compact (%d -> %d bytes)",
+                    cityCount, nameChars, latin1NameChars,
+                    getBytesPerCityAsObjects(), getBytesPerCityCompact(),
+                    bytesAsObjects, bytesCompact);
+        }
+    }
+
+    // Object layout estimates used by memoryReport(), in bytes
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    /** City: header plus two references. */
+    private static final int CITY_OBJECT = align(OBJECT_HEADER + 2 * REFERENCE);
+    /** String: header, value reference, hash, coder byte and padding. */
+    private static final int STRING_OBJECT = 24;
+    /** HashMap node: header, hash, key, value and next references. */
+    private static final int HASH_ENTRY = align(OBJECT_HEADER + 4 + 3 * REFERENCE) + REFERENCE;
+
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    private static long arrayBytes(long length, int elementSize) {
+        return align((int) Math.min(Integer.MAX_VALUE - 7, ARRAY_HEADER + length * elementSize));
+    }
+
+    private static long stringBytes(int length, boolean latin1) {
+        return STRING_OBJECT + arrayBytes(length, latin1 ? 1 : 2);
+    }
+
+    private static boolean isLatin1(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 256) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isLatin1(int position) {
+        for (int i = nameStarts[position]; i < nameStarts[position + 1]; i++) {
+            if (names[i] >= 256) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the code of a province, adding it to the dictionary if it is new.
+     */
+    private int provinceCode(String province) {
+        Integer code = provinceCodes.get(province);
+        if (code == null) {
+            if (provinceNames.size() == MAX_PROVINCES) {
+                throw new IllegalArgumentException();
+            }
+            code = provinceNames.size();
+            provinceNames.add(province);
+            provinceCodes.put(province, code);
+        }
+        return code;
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+    }
+
+    private boolean nameEquals(int position, String name) {
+        int start = nameStarts[position];
+        if (nameStarts[position + 1] - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (names[start + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(String name, int provinceCode) {
+        int h = name.hashCode() * 31 + provinceCode;
+        return h ^ (h >>> 16);
+    }
+
+    private int hashAt(int position) {
+        int h = 0;
+        for (int i = nameStarts[position]; i < nameStarts[position + 1]; i++) {
+            h = 31 * h + names[i];
+        }
+        h = h * 31 + (provinces[position] & 0xFFFF);
+        return h ^ (h >>> 16);
+    }
+
+    private void insertIntoTable(int position) {
+        int mask = table.length - 1;
+        int slot = hashAt(position) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = position + 1;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int position = 0; position < size; position++) {
+            insertIntoTable(position);
+        }
+    }
+}
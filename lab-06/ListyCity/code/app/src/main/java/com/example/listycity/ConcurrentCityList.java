@@ -0,0 +1,230 @@
+package com.example.listycity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe version of {@link CityList} for filling a list from several threads at once.
+ * <p>
+ * It offers the same methods with the same behaviour as CityList. Membership is kept in a
+ * concurrent hash map and the sorted order in a concurrent skip list. An add or delete claims
+ * the city's entry in the map with an atomic compute and updates the skip list inside it, so
+ * changes to the same city happen one after another and the two structures always agree on
+ * it, while changes to different cities and lookups run in parallel without a global lock.
+ * </p>
+ * <p>
+ * {@link #getCities()} tries to return a read-only copy of the list as it was at one point
+ * in time. The copy is taken without locking: writers count the changes they start and
+ * finish, and a copy only counts if no change was in progress or started while it was made.
+ * The counts are striped {@link LongAdder}s, so writers on different cores do not all
+ * update the same memory location. As in CityList, a point-in-time copy is reused until the
+ * next change.
+ * </p>
+ * <p>
+ * Consistency of getCities() is best-effort. Writers are never held back, so under a
+ * steady stream of changes the copy may overlap a change on every attempt. After a few
+ * such attempts the last copy is returned anyway: it holds every city that was in the list
+ * for the whole call and no city that was absent for the whole call, but each city added
+ * or deleted during the call may or may not be in it, so it need not match any single
+ * moment. Callers that need an exact snapshot must stop writing first.
+ * </p>
+ */
+public class ConcurrentCityList {
+    /**
+     * Number of point-in-time copy attempts {@link #getCities()} makes before settling for a
+     * copy that overlapped changes.
+     */
+    private static final int OPTIMISTIC_ATTEMPTS = 4;
+
+    /**
+     * Point-in-time copy attempts made by this list; see {@link #OPTIMISTIC_ATTEMPTS}.
+     */
+    private final int optimisticAttempts;
+
+    /**
+     * Hash index of all cities, used for membership checks and to claim adds and deletes.
+     */
+    private final ConcurrentHashMap<City, Boolean> index = new ConcurrentHashMap<>();
+
+    /**
+     * Cities in sorted order (see {@link City#compareTo(City)}).
+     */
+    private final ConcurrentSkipListSet<City> cities = new ConcurrentSkipListSet<>();
+
+    /**
+     * Number of changes that have started.
+     */
+    private final LongAdder started = new LongAdder();
+
+    /**
+     * Number of changes that have finished; equal to {@link #started} when no change is in progress.
+     * <p>
+     * A LongAdder sum is not read atomically, but both counts only grow, so reading this one
+     * and then finding {@link #started} equal to it means no change was in progress at some
+     * moment between the two reads.
+     * </p>
+     */
+    private final LongAdder finished = new LongAdder();
+
+    /**
+     * Last copy handed out by {@link #getCities()}, together with the change count it reflects.
+     */
+    private volatile Snapshot snapshot = new Snapshot(0, Collections.<City>emptyList());
+
+    /**
+     * A read-only sorted copy of the cities after a given number of changes.
+     */
+    private static final class Snapshot {
+        final long version;
+        final List<City> cities;
+
+        Snapshot(long version, List<City> cities) {
+            this.version = version;
+            this.cities = cities;
+        }
+    }
+
+    /**
+     * Creates an empty list.
+     */
+    public ConcurrentCityList() {
+        this(OPTIMISTIC_ATTEMPTS);
+    }
+
+    /**
+     * Creates an empty list whose getCities() gives up on a point-in-time copy after the
+     * given number of attempts; tests use 0 to always take the best-effort path.
+     *
+     * @param optimisticAttempts point-in-time copy attempts per getCities() call
+     */
+    ConcurrentCityList(int optimisticAttempts) {
+        this.optimisticAttempts = optimisticAttempts;
+    }
+
+    /**
+     * Adds a City to the list if it does not already exist.
+     * <p>
+     * If several threads add the same city at the same time, exactly one of them succeeds.
+     * </p>
+     *
+     * @param city the City object to add
+     * @throws IllegalArgumentException if the city already exists in the list
+     */
+    public void add(City city) {
+        if (index.containsKey(city)) {
+            throw new IllegalArgumentException();
+        }
+        boolean[] added = new boolean[1];
+        started.increment();
+        try {
+            index.computeIfAbsent(city, key -> {
+                cities.add(key);
+                added[0] = true;
+                return Boolean.TRUE;
+            });
+        } finally {
+            finished.increment();
+        }
+        if (!added[0]) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Returns a sorted list of City objects.
+     * <p>
+     * The returned list is read-only and changes made afterwards do not show up in it. It shows
+     * the cities as they were at one point in time, unless changes kept overlapping the copy;
+     * consistency is then best-effort (see the class description).
+     * </p>
+     *
+     * @return a read-only list of cities sorted alphabetically by city name
+     */
+    public List<City> getCities() {
+        for (int attempt = 0; attempt < optimisticAttempts; attempt++) {
+            long version = finished.sum();
+            if (started.sum() != version) {
+                // a change is in progress
+                Thread.yield();
+                continue;
+            }
+            Snapshot current = snapshot;
+            if (current.version == version) {
+                return current.cities;
+            }
+            List<City> copy = new ArrayList<>(cities);
+            if (started.sum() == version) {
+                return publish(version, copy);
+            }
+        }
+
+        // writers kept overlapping: best effort, not stored as a snapshot. The skip list's
+        // weakly consistent iterator still gives a sorted, duplicate-free copy
+        return Collections.unmodifiableList(new ArrayList<>(cities));
+    }
+
+    /**
+     * Stores a finished copy as the current snapshot, unless a newer one was stored meanwhile.
+     */
+    private List<City> publish(long version, List<City> copy) {
+        List<City> cities = Collections.unmodifiableList(copy);
+        Snapshot current = snapshot;
+        if (current.version < version) {
+            snapshot = new Snapshot(version, cities);
+        }
+        return cities;
+    }
+
+    /**
+     * Checks whether a specific City object exists in the list.
+     *
+     * @param city the City object to check
+     * @return true if the city exists in the list, false otherwise
+     */
+    public boolean hasCity(City city) {
+        return index.containsKey(city);
+    }
+
+    /**
+     * Removes a City object from the list if it exists.
+     * <p>
+     * If the city does not exist, this method throws an IllegalArgumentException.
+     * If several threads delete the same city at the same time, exactly one of them succeeds.
+     * </p>
+     *
+     * @param city the City object to remove
+     * @throws IllegalArgumentException if the city is not found in the list
+     */
+    public void delete(City city) {
+        if (!index.containsKey(city)) {
+            throw new IllegalArgumentException();
+        }
+        boolean[] removed = new boolean[1];
+        started.increment();
+        try {
+            index.computeIfPresent(city, (key, present) -> {
+                cities.remove(key);
+                removed[0] = true;
+                return null;
+            });
+        } finally {
+            finished.increment();
+        }
+        if (!removed[0]) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Returns the number of City objects currently in the list.
+     *
+     * @return the total count of cities
+     */
+    public int countCities() {
+        return index.size();
+    }
+}
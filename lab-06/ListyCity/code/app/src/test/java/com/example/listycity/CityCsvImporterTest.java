@@ -0,0 +1,107 @@
+package com.example.listycity;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the CityCsvImporter class using JUnit.
+ */
+class CityCsvImporterTest {
+
+    /**
+     * Wraps CSV text in an InputStream the importer can read.
+     */
+    private InputStream csv(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests that valid rows are added and that quoted fields may contain commas and quotes.
+     *
+     * @throws IOException never, the input is in memory
+     */
+    @Test
+    void testImport() throws IOException {
+        CityList cityList = new CityList();
+        CityCsvImporter importer = new CityCsvImporter(cityList);
+
+        CityCsvImporter.Result result = importer.importFrom(csv(
+                "Edmonton,Alberta\n"
+                        + "\n"
+                        + "\"Lake Louise, AB\",Alberta\n"
+                        + "\"Say \"\"Hi\"\"\", Nowhere \n"));
+
+        assertEquals(3, result.getAddedCount());
+        assertEquals(0, result.getRejectedCount());
+        assertEquals(3, cityList.countCities());
+        assertTrue(cityList.hasCity(new City("Lake Louise, AB", "Alberta")));
+        assertTrue(cityList.hasCity(new City("Say \"Hi\"", "Nowhere")));
+    }
+
+    /**
+     * Tests that malformed rows, repeated rows and cities already in the list
+     * are reported with their line numbers and are not added.
+     *
+     * @throws IOException never, the input is in memory
+     */
+    @Test
+    void testRejections() throws IOException {
+        CityList cityList = new CityList();
+        cityList.add(new City("Edmonton", "Alberta"));
+        CityCsvImporter importer = new CityCsvImporter(cityList);
+
+        CityCsvImporter.Result result = importer.importFrom(csv(
+                "Calgary,Alberta\n"
+                        + "Edmonton,Alberta\n"
+                        + "Calgary,Alberta\n"
+                        + "Regina\n"
+                        + "a,b,c\n"
+                        + ",Alberta\n"
+                        + "Regina,Saskatchewan\n"));
+
+        assertEquals(2, result.getAddedCount());
+        assertEquals(5, result.getRejectedCount());
+        assertEquals(3, cityList.countCities());
+
+        assertEquals(2, result.getRejections().get(0).getLineNumber());
+        assertEquals(CityCsvImporter.Reason.ALREADY_IN_LIST, result.getRejections().get(0).getReason());
+        assertEquals(3, result.getRejections().get(1).getLineNumber());
+        assertEquals(CityCsvImporter.Reason.DUPLICATE_IN_BATCH, result.getRejections().get(1).getReason());
+        assertEquals("Regina", result.getRejections().get(2).getLine());
+        assertEquals(CityCsvImporter.Reason.MALFORMED, result.getRejections().get(2).getReason());
+        assertEquals(CityCsvImporter.Reason.MALFORMED, result.getRejections().get(3).getReason());
+        assertEquals(CityCsvImporter.Reason.MALFORMED, result.getRejections().get(4).getReason());
+    }
+
+    /**
+     * Tests that the list is left unchanged when reading the input fails part way.
+     */
+    @Test
+    void testFailedReadChangesNothing() {
+        CityList cityList = new CityList();
+        CityCsvImporter importer = new CityCsvImporter(cityList);
+        InputStream broken = new InputStream() {
+            private final InputStream rows = csv("Calgary,Alberta\nRegina,Saskatchewan\n");
+
+            @Override
+            public int read() throws IOException {
+                int b = rows.read();
+                if (b == -1) {
+                    throw new IOException("disk went away");
+                }
+                return b;
+            }
+        };
+
+        assertThrows(IOException.class, () -> {
+            importer.importFrom(broken);
+        });
+        assertEquals(0, cityList.countCities());
+    }
+}
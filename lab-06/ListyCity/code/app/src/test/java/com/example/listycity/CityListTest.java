@@ -1,6 +1,11 @@
 package com.example.listycity;
 
 import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -186,4 +191,190 @@ class CityListTest {
         assertEquals(1, cityList.countCities());
     }
 
+    /**
+     * Tests that cities are matched by value (name and province),
+     * not by object identity.
+     */
+    @Test
+    void testCityEquality() {
+        CityList cityList = mockCityList();
+
+        // A separate object with the same name and province counts as the same city
+        assertTrue(cityList.hasCity(new City("Edmonton", "Alberta")));
+        assertThrows(IllegalArgumentException.class, () -> {
+            cityList.add(new City("Edmonton", "Alberta"));
+        });
+
+        // Same name in a different province is a different city
+        assertFalse(cityList.hasCity(new City("Edmonton", "Ontario")));
+        cityList.add(new City("Edmonton", "Ontario"));
+        assertEquals(2, cityList.countCities());
+    }
+
+    /**
+     * Tests that deleting cities from the middle of the list keeps
+     * the remaining cities findable and deletable.
+     */
+    @Test
+    void testDeleteKeepsOtherCities() {
+        CityList cityList = new CityList();
+        for (int i = 0; i < 100; i++) {
+            cityList.add(new City("City" + i, "Province" + (i % 10)));
+        }
+
+        // delete every other city
+        for (int i = 0; i < 100; i += 2) {
+            cityList.delete(new City("City" + i, "Province" + (i % 10)));
+        }
+        assertEquals(50, cityList.countCities());
+
+        for (int i = 0; i < 100; i++) {
+            City city = new City("City" + i, "Province" + (i % 10));
+            assertEquals(i % 2 == 1, cityList.hasCity(city));
+        }
+
+        // the remaining cities can still be deleted after a sort
+        cityList.getCities();
+        for (int i = 1; i < 100; i += 2) {
+            cityList.delete(new City("City" + i, "Province" + (i % 10)));
+        }
+        assertEquals(0, cityList.countCities());
+    }
+
+    /**
+     * Tests that getCities() keeps the list sorted across adds and deletes,
+     * reuses the same list while nothing changes, and cannot be modified by callers.
+     */
+    @Test
+    void testGetCitiesSnapshot() {
+        CityList cityList = mockCityList();   // has only "Edmonton"
+        cityList.add(new City("Victoria", "British Columbia"));
+        cityList.add(new City("Calgary", "Alberta"));
+
+        // repeated calls with no changes in between return the same list
+        assertSame(cityList.getCities(), cityList.getCities());
+        assertEquals("Calgary", cityList.getCities().get(0).getCityName());
+        assertEquals("Edmonton", cityList.getCities().get(1).getCityName());
+        assertEquals("Victoria", cityList.getCities().get(2).getCityName());
+
+        // callers cannot change the list behind the CityList's back
+        assertThrows(UnsupportedOperationException.class, () -> {
+            cityList.getCities().add(new City("Regina", "Saskatchewan"));
+        });
+
+        // deleting a city gives a new, still sorted list
+        cityList.delete(new City("Edmonton", "Alberta"));
+        assertEquals(2, cityList.getCities().size());
+        assertEquals("Calgary", cityList.getCities().get(0).getCityName());
+        assertEquals("Victoria", cityList.getCities().get(1).getCityName());
+    }
+
+    /**
+     * Tests that findByPrefix() returns the matching cities in sorted order,
+     * respects the limit, and sees adds and deletes.
+     */
+    @Test
+    void testFindByPrefix() {
+        CityList cityList = mockCityList();   // has only "Edmonton"
+        cityList.add(new City("Edson", "Alberta"));
+        cityList.add(new City("Calgary", "Alberta"));
+        cityList.add(new City("Edmundston", "New Brunswick"));
+        cityList.add(new City("Ed", "Nowhere"));
+
+        List<City> matches = cityList.findByPrefix("Edm", 10);
+        assertEquals(2, matches.size());
+        assertEquals("Edmonton", matches.get(0).getCityName());
+        assertEquals("Edmundston", matches.get(1).getCityName());
+
+        // the limit caps the number of results, keeping the first ones in order
+        matches = cityList.findByPrefix("Ed", 2);
+        assertEquals(2, matches.size());
+        assertEquals("Ed", matches.get(0).getCityName());
+        assertEquals("Edmonton", matches.get(1).getCityName());
+
+        // an empty prefix matches everything, no match gives an empty list
+        assertEquals(5, cityList.findByPrefix("", 10).size());
+        assertTrue(cityList.findByPrefix("Toronto", 10).isEmpty());
+        assertTrue(cityList.findByPrefix("Ed", 0).isEmpty());
+
+        cityList.delete(new City("Edmonton", "Alberta"));
+        matches = cityList.findByPrefix("Edm", 10);
+        assertEquals(1, matches.size());
+        assertEquals("Edmundston", matches.get(0).getCityName());
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            cityList.findByPrefix("Ed", -1);
+        });
+    }
+
+    /**
+     * Tests the province queries: cities per province, counts per province,
+     * and name ranges inside a province, including after a delete.
+     */
+    @Test
+    void testProvinceQueries() {
+        CityList cityList = mockCityList();   // has only "Edmonton", "Alberta"
+        cityList.add(new City("Calgary", "Alberta"));
+        cityList.add(new City("Red Deer", "Alberta"));
+        cityList.add(new City("Regina", "Saskatchewan"));
+
+        List<City> alberta = cityList.getCitiesInProvince("Alberta");
+        assertEquals(3, alberta.size());
+        assertEquals("Calgary", alberta.get(0).getCityName());
+        assertEquals("Edmonton", alberta.get(1).getCityName());
+        assertEquals("Red Deer", alberta.get(2).getCityName());
+        assertTrue(cityList.getCitiesInProvince("Manitoba").isEmpty());
+
+        assertEquals(3, cityList.countCitiesInProvince("Alberta"));
+        assertEquals(1, cityList.countCitiesInProvince("Saskatchewan"));
+        assertEquals(0, cityList.countCitiesInProvince("Manitoba"));
+
+        Map<String, Integer> counts = cityList.getProvinceCounts();
+        assertEquals(2, counts.size());
+        assertEquals(3, counts.get("Alberta"));
+        assertEquals(1, counts.get("Saskatchewan"));
+
+        // names from "D" up to (not including) "Red Deer"
+        List<City> range = cityList.getCitiesInProvince("Alberta", "D", "Red Deer");
+        assertEquals(1, range.size());
+        assertEquals("Edmonton", range.get(0).getCityName());
+        assertThrows(IllegalArgumentException.class, () -> {
+            cityList.getCitiesInProvince("Alberta", "Z", "A");
+        });
+
+        // deleting the last city of a province removes the province from the counts
+        cityList.delete(new City("Regina", "Saskatchewan"));
+        assertEquals(0, cityList.countCitiesInProvince("Saskatchewan"));
+        assertFalse(cityList.getProvinceCounts().containsKey("Saskatchewan"));
+    }
+
+    /**
+     * Tests that addAll() adds a whole batch at once, and adds nothing
+     * if the batch clashes with the list or with itself.
+     */
+    @Test
+    void testAddAll() {
+        CityList cityList = mockCityList();   // has only "Edmonton"
+        City calgary = new City("Calgary", "Alberta");
+        City regina = new City("Regina", "Saskatchewan");
+
+        cityList.addAll(Arrays.asList(regina, calgary));
+        assertEquals(3, cityList.countCities());
+        assertEquals(calgary, cityList.getCities().get(0));
+        assertEquals(2, cityList.countCitiesInProvince("Alberta"));
+
+        // a city already in the list rejects the whole batch
+        City victoria = new City("Victoria", "British Columbia");
+        assertThrows(IllegalArgumentException.class, () -> {
+            cityList.addAll(Arrays.asList(victoria, mockCity()));
+        });
+        assertFalse(cityList.hasCity(victoria));
+
+        // so does a city that appears twice in the batch
+        assertThrows(IllegalArgumentException.class, () -> {
+            cityList.addAll(Arrays.asList(victoria, new City("Victoria", "British Columbia")));
+        });
+        assertEquals(3, cityList.countCities());
+    }
+
 }
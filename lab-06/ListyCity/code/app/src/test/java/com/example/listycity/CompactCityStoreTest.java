@@ -0,0 +1,81 @@
+package com.example.listycity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the CompactCityStore class using JUnit.
+ */
+class CompactCityStoreTest {
+
+    /**
+     * Tests that cities can be added, read back and looked up.
+     */
+    @Test
+    void testAddAndGet() {
+        CompactCityStore store = new CompactCityStore();
+        assertEquals(0, store.add(new City("Edmonton", "Alberta")));
+        assertEquals(1, store.add(new City("Calgary", "Alberta")));
+        assertEquals(2, store.add(new City("Regina", "Saskatchewan")));
+
+        assertEquals(3, store.size());
+        assertEquals(2, store.countProvinces());
+        assertEquals(new City("Calgary", "Alberta"), store.get(1));
+        assertEquals("Regina", store.getCityName(2));
+
+        // every city of a province shares one province String
+        assertSame(store.getProvinceName(0), store.getProvinceName(1));
+
+        assertTrue(store.contains(new City("Edmonton", "Alberta")));
+        assertFalse(store.contains(new City("Edmonton", "Saskatchewan")));
+        assertFalse(store.contains(new City("Edmon", "Alberta")));
+        assertFalse(store.contains(new City("Toronto", "Ontario")));
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            store.add(new City("Edmonton", "Alberta"));
+        });
+        assertThrows(IndexOutOfBoundsException.class, () -> {
+            store.get(3);
+        });
+    }
+
+    /**
+     * Tests that a store built from a CityList holds the same cities in sorted order,
+     * and stays correct as its arrays grow.
+     */
+    @Test
+    void testOfCityList() {
+        CityList cityList = new CityList();
+        for (int i = 0; i < 5000; i++) {
+            cityList.add(new City("City " + i, "Province " + (i % 12)));
+        }
+
+        CompactCityStore store = CompactCityStore.of(cityList.getCities());
+        assertEquals(5000, store.size());
+        assertEquals(12, store.countProvinces());
+        for (int i = 0; i < store.size(); i++) {
+            assertEquals(cityList.getCities().get(i), store.get(i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(store.contains(new City("City " + i, "Province " + (i % 12))));
+        }
+    }
+
+    /**
+     * Tests that the memory report shows the store using less memory per city
+     * than City objects when many cities share a few provinces.
+     */
+    @Test
+    void testMemoryReport() {
+        CompactCityStore store = new CompactCityStore();
+        for (int i = 0; i < 100000; i++) {
+            store.add(new City("City " + i, "Province " + (i % 12)));
+        }
+
+        CompactCityStore.MemoryReport report = store.memoryReport();
+        assertEquals(100000, report.getCityCount());
+        assertTrue(report.getBytesPerCityCompact() < report.getBytesPerCityAsObjects() / 2,
+                report.toString());
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.listycity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class tests the ConcurrentCityList class using JUnit.
+ * <p>
+ * Besides the single-threaded behaviour shared with CityList, it checks that
+ * several threads adding and deleting at once leave the list consistent.
+ * </p>
+ */
+class ConcurrentCityListTest {
+
+    private static final int THREADS = 8;
+
+    /**
+     * Tests that add, hasCity, delete, countCities and getCities
+     * behave like the ones in CityList.
+     */
+    @Test
+    void testSingleThreaded() {
+        ConcurrentCityList cityList = new ConcurrentCityList();
+        City edmonton = new City("Edmonton", "Alberta");
+        City calgary = new City("Calgary", "Alberta");
+        cityList.add(edmonton);
+        cityList.add(calgary);
+
+        assertTrue(cityList.hasCity(new City("Edmonton", "Alberta")));
+        assertEquals(2, cityList.countCities());
+        assertEquals(calgary, cityList.getCities().get(0));
+        assertEquals(edmonton, cityList.getCities().get(1));
+        assertSame(cityList.getCities(), cityList.getCities());
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            cityList.add(edmonton);
+        });
+
+        cityList.delete(edmonton);
+        assertFalse(cityList.hasCity(edmonton));
+        assertEquals(1, cityList.getCities().size());
+        assertThrows(IllegalArgumentException.class, () -> {
+            cityList.delete(edmonton);
+        });
+    }
+
+    /**
+     * Tests that when every thread tries to add the same cities,
+     * each city is added exactly once and every other attempt is rejected.
+     *
+     * @throws Exception if a worker thread fails
+     */
+    @Test
+    void testConcurrentDuplicateAdds() throws Exception {
+        ConcurrentCityList cityList = new ConcurrentCityList();
+        int cityCount = 2000;
+
+        List<Callable<Integer>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(() -> {
+                int added = 0;
+                for (int i = 0; i < cityCount; i++) {
+                    try {
+                        cityList.add(new City("City" + i, "Province"));
+                        added++;
+                    } catch (IllegalArgumentException e) {
+                        // another thread added it first
+                    }
+                }
+                return added;
+            });
+        }
+
+        int totalAdded = 0;
+        for (Integer added : runAll(workers)) {
+            totalAdded += added;
+        }
+        assertEquals(cityCount, totalAdded);
+        assertEquals(cityCount, cityList.countCities());
+        assertEquals(cityCount, cityList.getCities().size());
+    }
+
+    /**
+     * Tests that getCities() always returns a sorted, duplicate-free list
+     * while other threads keep adding and deleting cities.
+     *
+     * @throws Exception if a worker thread fails
+     */
+    @Test
+    void testSnapshotsWhileWriting() throws Exception {
+        ConcurrentCityList cityList = new ConcurrentCityList();
+
+        List<Callable<Integer>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS - 1; t++) {
+            final int thread = t;
+            workers.add(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    City city = new City("City" + thread + "-" + i, "Province");
+                    cityList.add(city);
+                    if (i % 2 == 0) {
+                        cityList.delete(city);
+                    }
+                }
+                return 0;
+            });
+        }
+        workers.add(() -> {
+            for (int i = 0; i < 200; i++) {
+                List<City> cities = cityList.getCities();
+                for (int j = 1; j < cities.size(); j++) {
+                    assertTrue(cities.get(j - 1).compareTo(cities.get(j)) < 0);
+                }
+            }
+            return 0;
+        });
+
+        runAll(workers);
+        assertEquals((THREADS - 1) * 500, cityList.countCities());
+        assertEquals((THREADS - 1) * 500, cityList.getCities().size());
+    }
+
+    /**
+     * Tests that one thread adding a city while another deletes it never leaves
+     * the city in the sorted list after both are done.
+     *
+     * @throws Exception if a worker thread fails
+     */
+    @Test
+    void testConcurrentAddAndDeleteOfSameCity() throws Exception {
+        ConcurrentCityList cityList = new ConcurrentCityList();
+        int rounds = 20_000;
+        City[] contested = new City[rounds];
+        for (int i = 0; i < rounds; i++) {
+            contested[i] = new City("Contested" + i, "Province");
+        }
+        CyclicBarrier start = new CyclicBarrier(2);
+
+        List<Callable<Integer>> workers = new ArrayList<>();
+        workers.add(() -> {
+            for (City city : contested) {
+                start.await();
+                cityList.add(city);
+            }
+            return 0;
+        });
+        workers.add(() -> {
+            for (City city : contested) {
+                start.await();
+                // delete as soon as the add shows up, while it may still be in progress
+                while (!cityList.hasCity(city)) {
+                    Thread.onSpinWait();
+                }
+                cityList.delete(city);
+            }
+            return 0;
+        });
+
+        runAll(workers);
+        assertEquals(0, cityList.countCities());
+        assertEquals(0, cityList.getCities().size());
+        for (City city : contested) {
+            assertFalse(cityList.hasCity(city));
+        }
+    }
+
+    /**
+     * Tests that getCities() agrees with hasCity() and countCities() while other
+     * threads keep adding and deleting: every city known to be in the list before
+     * a copy is taken is in the copy, and once writing stops the copy holds exactly
+     * the cities hasCity() reports, countCities() of them.
+     *
+     * @throws Exception if a worker thread fails
+     */
+    @Test
+    void testSnapshotsAgreeWithLookups() throws Exception {
+        ConcurrentCityList cityList = new ConcurrentCityList();
+        int perThread = 2000;
+        List<City> kept = new ArrayList<>(); // added by the writers and never deleted
+        List<City> churned = new ArrayList<>(); // added and deleted again by the writers
+        for (int t = 0; t < THREADS - 1; t++) {
+            for (int i = 0; i < perThread; i++) {
+                kept.add(new City("Kept" + t + "-" + i, "Province"));
+                churned.add(new City("Churned" + t + "-" + i, "Province"));
+            }
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger writersLeft = new AtomicInteger(THREADS - 1);
+
+        List<Callable<Integer>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS - 1; t++) {
+            final int thread = t;
+            workers.add(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    City churn = churned.get(thread * perThread + i);
+                    cityList.add(kept.get(thread * perThread + i));
+                    cityList.add(churn);
+                    cityList.delete(churn);
+                }
+                if (writersLeft.decrementAndGet() == 0) {
+                    writing.set(false);
+                }
+                return 0;
+            });
+        }
+        workers.add(() -> {
+            Random random = new Random(42);
+            int checks = 0;
+            while (writing.get() || checks == 0) {
+                List<City> present = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    City city = kept.get(random.nextInt(kept.size()));
+                    if (cityList.hasCity(city)) {
+                        present.add(city);
+                    }
+                }
+                List<City> cities = cityList.getCities();
+                for (City city : present) {
+                    assertTrue(Collections.binarySearch(cities, city) >= 0);
+                }
+                checks++;
+            }
+            return checks;
+        });
+
+        runAll(workers);
+        List<City> cities = cityList.getCities();
+        assertEquals(kept.size(), cityList.countCities());
+        assertEquals(cityList.countCities(), cities.size());
+        for (City city : kept) {
+            assertTrue(cityList.hasCity(city));
+            assertTrue(Collections.binarySearch(cities, city) >= 0);
+        }
+        for (City city : churned) {
+            assertFalse(cityList.hasCity(city));
+        }
+    }
+
+    /**
+     * Tests the best-effort copy getCities() falls back to when writers keep overlapping it.
+     * <p>
+     * The list is made with no point-in-time attempts, so every call takes the fallback.
+     * While other threads keep adding and deleting, each copy must still be sorted, read-only,
+     * hold every city that was in the list for the whole call and none that had already been
+     * deleted before it.
+     * </p>
+     *
+     * @throws Exception if a worker thread fails
+     */
+    @Test
+    void testBestEffortCopyWhileWriting() throws Exception {
+        ConcurrentCityList cityList = new ConcurrentCityList(0);
+        int perThread = 2000;
+        int writers = THREADS - 1;
+        AtomicIntegerArray done = new AtomicIntegerArray(writers); // rounds each writer has finished
+        AtomicInteger writersLeft = new AtomicInteger(writers);
+
+        List<Callable<Integer>> workers = new ArrayList<>();
+        for (int t = 0; t < writers; t++) {
+            final int thread = t;
+            workers.add(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    City churn = new City("Churned" + thread + "-" + i, "Province");
+                    cityList.add(new City("Kept" + thread + "-" + i, "Province"));
+                    cityList.add(churn);
+                    cityList.delete(churn);
+                    done.set(thread, i + 1);
+                }
+                writersLeft.decrementAndGet();
+                return 0;
+            });
+        }
+        workers.add(() -> {
+            int checks = 0;
+            while (writersLeft.get() > 0 || checks == 0) {
+                int[] before = new int[writers];
+                for (int t = 0; t < writers; t++) {
+                    before[t] = done.get(t);
+                }
+                List<City> cities = cityList.getCities();
+                for (int j = 1; j < cities.size(); j++) {
+                    assertTrue(cities.get(j - 1).compareTo(cities.get(j)) < 0);
+                }
+                for (int t = 0; t < writers; t++) {
+                    for (int i = 0; i < before[t]; i++) {
+                        assertTrue(Collections.binarySearch(cities, new City("Kept" + t + "-" + i, "Province")) >= 0);
+                        assertTrue(Collections.binarySearch(cities, new City("Churned" + t + "-" + i, "Province")) < 0);
+                    }
+                }
+                assertThrows(UnsupportedOperationException.class, () -> {
+                    cities.add(new City("Extra", "Province"));
+                });
+                checks++;
+            }
+            return checks;
+        });
+
+        runAll(workers);
+        List<City> cities = cityList.getCities();
+        assertEquals(writers * perThread, cities.size());
+        // a best-effort copy is never kept as the snapshot
+        assertNotSame(cities, cityList.getCities());
+        assertEquals(cities, cityList.getCities());
+    }
+
+    /**
+     * Runs all workers on their own threads and waits for their results.
+     */
+    private List<Integer> runAll(List<Callable<Integer>> workers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            List<Integer> results = new ArrayList<>();
+            for (Future<Integer> future : executor.invokeAll(workers)) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}